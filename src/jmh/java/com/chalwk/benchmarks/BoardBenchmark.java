@@ -0,0 +1,116 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.benchmarks;
+
+import com.chalwk.game.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the board operations every move goes through: playing a move (which also updates the winner), reading the
+ * outcome and rendering, plus whole random games as a realistic mix. Boards are half filled with no winner yet.
+ * Run with {@code mvn -P jmh verify -Djmh.include=BoardBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    /**
+     * Number of pre-shuffled games replayed by {@link #playGame()}; a power of two.
+     */
+    private static final int GAMES = 256;
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int size;
+
+    private Board board;
+    private Board empty;
+    private Board scratch;
+    private int[] emptyCells;
+    private int emptyCount;
+    private int[][] games;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(size);
+        board = midgameBoard(size, random);
+        empty = new Board(size);
+        scratch = new Board(size);
+        emptyCells = new int[size * size];
+        emptyCount = board.getEmptyCells(emptyCells);
+
+        games = new int[GAMES][];
+        for (int game = 0; game < GAMES; game++) {
+            int[] cells = new int[size * size];
+            for (int cell = 0; cell < cells.length; cell++) {
+                int swap = random.nextInt(cell + 1);
+                cells[cell] = cells[swap];
+                cells[swap] = cell;
+            }
+            games[game] = cells;
+        }
+    }
+
+    /**
+     * Fills half of a board at random, retrying until nobody has won so that moves are measured on a live game.
+     */
+    static Board midgameBoard(int size, Random random) {
+        while (true) {
+            Board board = new Board(size);
+            int player = 1;
+            for (int moves = 0; moves < size * size / 2; ) {
+                if (board.makeMove(random.nextInt(size), random.nextInt(size), player) == 2) {
+                    player = 3 - player;
+                    moves++;
+                }
+            }
+            if (board.checkWinner() == -1) {
+                return board;
+            }
+        }
+    }
+
+    /**
+     * Plays a move into one of the empty cells and takes it back again.
+     */
+    @Benchmark
+    public int makeMove() {
+        int cell = emptyCells[next++ % emptyCount];
+        int result = board.makeMove(cell / size, cell % size, 1);
+        board.undoMove(cell / size, cell % size);
+        return result;
+    }
+
+    @Benchmark
+    public int checkWinner() {
+        return board.checkWinner();
+    }
+
+    @Benchmark
+    public String printBoard() {
+        return board.printBoard();
+    }
+
+    /**
+     * Plays a random game from an empty board until someone wins or the board is full.
+     */
+    @Benchmark
+    public int playGame() {
+        int[] cells = games[next++ & (GAMES - 1)];
+        scratch.copyFrom(empty);
+        int player = 1;
+        for (int i = 0; i < cells.length && scratch.checkWinner() == -1; i++) {
+            scratch.makeMove(cells[i] / size, cells[i] % size, player);
+            player = 3 - player;
+        }
+        return scratch.checkWinner();
+    }
+}
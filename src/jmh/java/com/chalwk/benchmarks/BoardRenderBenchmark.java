@@ -0,0 +1,109 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.benchmarks;
+
+import com.chalwk.game.Board;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the template-based {@link Board#printBoard()} with the {@code String.format} implementation it replaced,
+ * on a half-filled board of each size. Run with {@code mvn -P jmh verify -Djmh.include=BoardRender}; add
+ * {@code -Djmh.args="-prof gc"} to compare allocation rates as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardRenderBenchmark {
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int size;
+
+    private Board board;
+
+    /**
+     * The legacy renderer, kept verbatim as the baseline.
+     */
+    private static String legacyPrintBoard(Board board) {
+        int rows = board.getROWS();
+        int cols = board.getROWS();
+        StringBuilder sb = new StringBuilder();
+
+        int maxColNumberLength = ("" + cols).length();
+        int maxRowNumberLength = ("" + rows).length();
+
+        // Print column numbers
+        sb.append(System.lineSeparator());
+        for (int col = 0; col < cols; col++) {
+            if (col == 0) {
+                sb.append("    ").append(String.format("%" + maxColNumberLength + "d", col)).append("   "); // Added 4 spaces before the first column number
+            } else {
+                sb.append(String.format("%" + maxColNumberLength + "d", col)).append("   ");
+            }
+        }
+        sb.append(System.lineSeparator());
+
+        // Print board
+        for (int row = 0; row < rows; row++) {
+
+            // Print row number
+            String rowStr = String.format("%" + maxRowNumberLength + "d", row);
+            sb.append(rowStr).append(" ");
+
+            // Print row content
+            for (int col = 0; col < cols; col++) {
+                sb.append("| ");
+                int cell = board.getCell(row, col);
+                if (cell == 1) {
+                    sb.append("X");
+                } else if (cell == 2) {
+                    sb.append("O");
+                } else {
+                    sb.append(" ");
+                }
+                sb.append(" ");
+            }
+            sb.append("|").append(System.lineSeparator());
+
+            // Print separator
+            if (row < rows - 1) {
+                sb.append("  |");
+                sb.append("---+".repeat(Math.max(0, cols)));
+                sb.deleteCharAt(sb.length() - 1);
+                sb.append("|").append(System.lineSeparator());
+            }
+        }
+
+        return sb.toString();
+    }
+
+    @Setup
+    public void setup() {
+        board = new Board(size, 3);
+        Random random = new Random(size);
+        int player = 1;
+        for (int moves = 0; moves < size * size / 2; moves++) {
+            board.makeMove(random.nextInt(size), random.nextInt(size), player);
+            player = 3 - player;
+        }
+        if (!board.printBoard().equals(legacyPrintBoard(board))) {
+            throw new IllegalStateException("Renderers disagree for size " + size);
+        }
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyPrintBoard(board);
+    }
+
+    @Benchmark
+    public String template() {
+        return board.printBoard();
+    }
+}
@@ -0,0 +1,112 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.benchmarks;
+
+import com.chalwk.bot.InteractionOutput;
+import com.chalwk.game.*;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the game bookkeeping around each command: building the game embed, and the invite, accept and end cycle
+ * through {@link GameManager}, single-threaded and with several threads contending on the same manager.
+ * <p>
+ * The invite cycle runs the same {@link GameManager} methods as the commands, answering through a {@link GameOutput}
+ * that drops everything, as {@link LoadGenerator} does, so nothing needs a live Discord interaction. Run with
+ * {@code mvn -P jmh verify -Djmh.include=GameBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    private static final long GUILD_ID = 1;
+
+    private static final GameOutput NO_OUTPUT = new GameOutput() {
+        @Override
+        public void reply(String message) {
+        }
+
+        @Override
+        public void announce(Notice notice) {
+        }
+
+        @Override
+        public void showBoard(Game game, BoardState state) {
+        }
+    };
+
+    @Param({"3", "4", "5", "6", "7", "8", "9"})
+    public int size;
+
+    private GameManager gameManager;
+    private Game game;
+    private final AtomicLong nextThreadBase = new AtomicLong();
+    private final AtomicLong nextGameId = new AtomicLong();
+
+    @Setup
+    public void setup() {
+        gameManager = new GameManager(new ChannelRegistry());
+        game = new Game(nextGameId.getAndIncrement(), 100, 200, GUILD_ID, gameManager, size);
+        Board midgame = BoardBenchmark.midgameBoard(size, new Random(size));
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (midgame.getCell(row, col) != 0) {
+                    game.getBoard().makeMove(row, col, midgame.getCell(row, col));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives each benchmark thread its own pair of players, so threads contend on the shared maps but never on the same
+     * players. Every cycle ends the pair's game, so the pair can start the next one.
+     */
+    @State(Scope.Thread)
+    public static class Players {
+        long inviting;
+        long invited;
+
+        @Setup
+        public void setup(GameBenchmark benchmark) {
+            inviting = benchmark.nextThreadBase.getAndIncrement() * 2 + 1; // user ID 0 is reserved
+            invited = inviting + 1;
+        }
+    }
+
+    @Benchmark
+    public MessageEmbed createGameEmbed() {
+        return InteractionOutput.createGameEmbed(game).build();
+    }
+
+    @Benchmark
+    public Game inviteAcceptRemove(Players players) {
+        return cycle(players);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Game inviteAcceptRemoveContended(Players players) {
+        return cycle(players);
+    }
+
+    /**
+     * Sends an invite, accepts it into a new game registered under both players, and ends the game as a draw, which
+     * rates it and frees both players again.
+     */
+    private Game cycle(Players players) {
+        gameManager.invitePlayer(players.inviting, players.invited, size, size, NO_OUTPUT);
+        gameManager.acceptInvite(players.invited, players.inviting, GUILD_ID, NO_OUTPUT);
+        Game created = gameManager.getGame(players.inviting);
+        created.endGame(BoardState.DRAW);
+        return created;
+    }
+}
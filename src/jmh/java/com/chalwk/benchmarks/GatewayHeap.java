@@ -0,0 +1,88 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.benchmarks;
+
+import com.chalwk.bot.GatewayProfile;
+import com.chalwk.util.authentication;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how much heap the gateway caches of one gateway profile take per guild.
+ * <p>
+ * Connects with the bot's token from {@code auth.token} and nothing but the gateway: no commands, games or metrics.
+ * Once every shard is ready it waits a while longer, so member and presence updates can fill the caches the way they
+ * do in a running bot, then reports the heap retained after a full collection, less what was retained before
+ * connecting, divided by the number of guilds.
+ * <p>
+ * Run once per profile and compare: {@code mvn -P jmh compile exec:java
+ * -Dexec.mainClass=com.chalwk.benchmarks.GatewayHeap -Dexec.args="--profile full --settle 120"}. Use the same bot
+ * account for both runs so the guilds are the same.
+ */
+public class GatewayHeap {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        GatewayProfile profile = GatewayProfile.LEAN;
+        int settleSeconds = 60;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--profile" -> profile = GatewayProfile.fromName(args[i + 1]);
+                case "--settle" -> settleSeconds = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        String token = authentication.getToken();
+        long baseline = retainedHeap();
+
+        AtomicInteger readyShards = new AtomicInteger();
+        ShardManager shardManager = profile.builder(token)
+                .addEventListeners(new ListenerAdapter() {
+                    @Override
+                    public void onReady(@NotNull ReadyEvent event) {
+                        readyShards.incrementAndGet();
+                    }
+                })
+                .build();
+
+        long start = System.nanoTime();
+        while (readyShards.get() < shardManager.getShardsTotal()) {
+            Thread.sleep(1000);
+        }
+        System.out.printf("%d shards ready after %.1fs, settling for %ds%n",
+                readyShards.get(), (System.nanoTime() - start) / 1e9, settleSeconds);
+        Thread.sleep(settleSeconds * 1000L);
+
+        long retained = retainedHeap() - baseline;
+        long guilds = shardManager.getGuildCache().size();
+        long users = shardManager.getUserCache().size();
+        System.out.printf("profile %s: %d guilds, %d cached users, %.1f MB retained, %.1f KB per guild%n",
+                profile.name().toLowerCase(), guilds, users, retained / 1048576.0,
+                guilds == 0 ? 0.0 : retained / 1024.0 / guilds);
+
+        shardManager.shutdown();
+        System.exit(0);
+    }
+
+    /**
+     * Gets the heap still in use after repeated full collections, which is what the caches hold on to.
+     */
+    private static long retainedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(200);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,327 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.benchmarks;
+
+import com.chalwk.game.*;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Simulates thousands of users playing at once against the game core, without a Discord connection, and reports the
+ * throughput and latency of each command.
+ * <p>
+ * Users play in fixed pairs. Each pair loops through invite, then accept (or, one time in ten, cancel), then moves
+ * until the game ends, sending its next command as soon as the previous one is answered. Commands run on a worker
+ * pool the size of the bot's command pool, and a command's latency runs from submitting it to that pool until the
+ * core answers through {@link GameOutput}, which for moves includes the wait on the game's mailbox.
+ * <p>
+ * Run with {@code mvn -P jmh compile exec:java -Dexec.mainClass=com.chalwk.benchmarks.LoadGenerator
+ * -Dexec.args="--users 4000 --seconds 30"}. Other options: {@code --warmup <seconds>}, {@code --threads <n>},
+ * {@code --size <board size>}.
+ */
+public class LoadGenerator {
+
+    private static final long GUILD_ID = 1;
+    private static final int CANCEL_PERCENT = 10;
+
+    private enum Command {
+        INVITE, ACCEPT, CANCEL, MOVE
+    }
+
+    private enum Phase {
+        IDLE, INVITED, PLAYING, FAILED
+    }
+
+    private final int size;
+    private final ThreadPoolExecutor gateway;
+    private final GameManager gameManager;
+    private final Map<Command, Latencies> latencies = new EnumMap<>(Command.class);
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile boolean running = true;
+    private volatile boolean recording;
+
+    private LoadGenerator(int size, int threads) {
+        this.size = size;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.gateway = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "load-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.gameManager = new GameManager(new ChannelRegistry(), (guildId, message) -> timeouts.increment());
+        for (Command command : Command.values()) {
+            latencies.put(command, new Latencies());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int users = 4000;
+        int seconds = 30;
+        int warmup = 5;
+        int threads = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+        int size = 3;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            int value = Integer.parseInt(args[i + 1]);
+            switch (args[i]) {
+                case "--users" -> users = value;
+                case "--seconds" -> seconds = value;
+                case "--warmup" -> warmup = value;
+                case "--threads" -> threads = value;
+                case "--size" -> size = value;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        LoadGenerator generator = new LoadGenerator(size, threads);
+        System.out.printf("%d users on %d workers, %dx%d boards, %ds warmup + %ds measured%n",
+                users, threads, size, size, warmup, seconds);
+        generator.run(users / 2, warmup, seconds);
+    }
+
+    private void run(int pairs, int warmupSeconds, int seconds) throws InterruptedException {
+        for (int pair = 0; pair < pairs; pair++) {
+            Pair players = new Pair(2L * pair + 1, 2L * pair + 2); // user ID 0 is reserved
+            players.queue();
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        long startGames = gameManager.getStats().getGamesFinished();
+        long start = System.nanoTime();
+        recording = true;
+        Thread.sleep(seconds * 1000L);
+        recording = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long games = gameManager.getStats().getGamesFinished() - startGames;
+        running = false;
+        gateway.shutdown();
+        gateway.awaitTermination(10, TimeUnit.SECONDS);
+
+        System.out.printf("%-8s %12s %10s %10s %10s %10s %10s%n", "command", "count", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        long total = 0;
+        for (Map.Entry<Command, Latencies> entry : latencies.entrySet()) {
+            Latencies recorded = entry.getValue();
+            long count = recorded.count();
+            total += count;
+            System.out.printf("%-8s %12d %10.0f %10.1f %10.1f %10.1f %10.1f%n", entry.getKey().name().toLowerCase(), count,
+                    count / elapsed, recorded.percentile(0.50) / 1e3, recorded.percentile(0.99) / 1e3,
+                    recorded.percentile(0.999) / 1e3, recorded.max() / 1e3);
+        }
+        Latencies all = new Latencies();
+        latencies.values().forEach(all::addAll);
+        System.out.printf("%-8s %12d %10.0f %10.1f %10.1f %10.1f %10.1f%n", "all", total, total / elapsed,
+                all.percentile(0.50) / 1e3, all.percentile(0.99) / 1e3, all.percentile(0.999) / 1e3, all.max() / 1e3);
+        System.out.printf("games finished: %.0f/s, unexpected answers: %d, timeouts: %d%n", games / elapsed, errors.sum(), timeouts.sum());
+    }
+
+    /**
+     * Two simulated users who only ever play each other. Only one command of a pair is in flight at a time, and the
+     * next one is sent from the answer to the previous, so a pair's fields need no synchronization beyond the hand-off
+     * through the worker pool.
+     */
+    private final class Pair {
+        private final long inviting;
+        private final long invited;
+        private final int[] emptyCells;
+        private Phase phase = Phase.IDLE;
+
+        private Pair(long inviting, long invited) {
+            this.inviting = inviting;
+            this.invited = invited;
+            this.emptyCells = new int[size * size];
+        }
+
+        /**
+         * Hands the pair's next command to the worker pool, as the gateway hands over a slash command event.
+         */
+        private void queue() {
+            long queuedAt = System.nanoTime();
+            try {
+                gateway.execute(() -> next(queuedAt));
+            } catch (RejectedExecutionException e) {
+                // the run is over and the pool is shutting down
+            }
+        }
+
+        private void next(long queuedAt) {
+            if (!running) {
+                return;
+            }
+            switch (phase) {
+                case IDLE -> send(Command.INVITE, queuedAt, output -> gameManager.invitePlayer(inviting, invited, size, size, output));
+                case INVITED -> {
+                    if (ThreadLocalRandom.current().nextInt(100) < CANCEL_PERCENT) {
+                        send(Command.CANCEL, queuedAt, output -> gameManager.cancelInvite(inviting, invited, output));
+                    } else {
+                        send(Command.ACCEPT, queuedAt, output -> gameManager.acceptInvite(invited, inviting, GUILD_ID, output));
+                    }
+                }
+                case PLAYING -> {
+                    Game game = gameManager.getGame(inviting);
+                    if (game == null) { // ran out of time
+                        phase = Phase.IDLE;
+                        next(queuedAt);
+                        return;
+                    }
+                    int empty = game.getBoard().getEmptyCells(emptyCells);
+                    int cell = emptyCells[ThreadLocalRandom.current().nextInt(empty)];
+                    long player = game.getPlayerToMove();
+                    send(Command.MOVE, queuedAt, output -> gameManager.playMove(player, cell / size, cell % size, output));
+                }
+                case FAILED -> send(Command.CANCEL, queuedAt, output -> gameManager.cancelInvite(inviting, 0, output));
+            }
+        }
+
+        private void send(Command command, long queuedAt, Consumer<GameOutput> action) {
+            action.accept(new LoadOutput(this, command, queuedAt));
+        }
+
+        /**
+         * Moves the pair on according to the answer and queues its next command.
+         */
+        private void answered(Command command, boolean accepted, BoardState state) {
+            if (!accepted && command != Command.CANCEL) {
+                errors.increment();
+                phase = Phase.FAILED; // clear any invite left behind and start over
+            } else {
+                phase = switch (command) {
+                    case INVITE -> Phase.INVITED;
+                    case ACCEPT -> Phase.PLAYING;
+                    case CANCEL -> Phase.IDLE;
+                    case MOVE -> state.isOver() ? Phase.IDLE : Phase.PLAYING;
+                };
+            }
+            if (running) {
+                queue();
+            }
+        }
+    }
+
+    /**
+     * Records how long the core took to answer one command.
+     */
+    private final class LoadOutput implements GameOutput {
+        private final Pair pair;
+        private final Command command;
+        private final long queuedAt;
+        private final AtomicBoolean answered = new AtomicBoolean();
+
+        private LoadOutput(Pair pair, Command command, long queuedAt) {
+            this.pair = pair;
+            this.command = command;
+            this.queuedAt = queuedAt;
+        }
+
+        private void complete(boolean accepted, BoardState state) {
+            long latency = System.nanoTime() - queuedAt;
+            if (!answered.compareAndSet(false, true)) {
+                errors.increment(); // the core must answer every command exactly once
+                return;
+            }
+            if (recording) {
+                latencies.get(command).record(latency);
+            }
+            pair.answered(command, accepted, state);
+        }
+
+        @Override
+        public void reply(String message) {
+            // Cancelling always answers with a private reply; for every other command it is a refusal.
+            complete(command == Command.CANCEL, BoardState.IN_PROGRESS);
+        }
+
+        @Override
+        public void announce(Notice notice) {
+            complete(true, BoardState.IN_PROGRESS);
+        }
+
+        @Override
+        public void showBoard(Game game, BoardState state) {
+            complete(true, state);
+        }
+    }
+
+    /**
+     * A lock-free latency histogram with about 3% resolution: 32 linear sub-buckets for every power of two, each
+     * bucket a striped counter.
+     */
+    private static final class Latencies {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final LongAdder[] counts = new LongAdder[BUCKETS];
+        private final AtomicLong max = new AtomicLong();
+
+        private Latencies() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        private static int bucket(long nanos) {
+            if (nanos < 2 * SUB_BUCKETS) {
+                return (int) nanos;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            return ((exponent - SUB_BITS) << SUB_BITS) + (int) (nanos >>> (exponent - SUB_BITS));
+        }
+
+        /**
+         * Gets the largest value that falls into a bucket.
+         */
+        private static long upperBound(int bucket) {
+            if (bucket < 2 * SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket >>> SUB_BITS) - 1 + SUB_BITS;
+            long mantissa = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+            return ((mantissa + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        private void record(long nanos) {
+            counts[bucket(Math.max(0, nanos))].increment();
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void addAll(Latencies other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i].add(other.counts[i].sum());
+            }
+            max.accumulateAndGet(other.max(), Math::max);
+        }
+
+        private long count() {
+            long total = 0;
+            for (LongAdder count : counts) {
+                total += count.sum();
+            }
+            return total;
+        }
+
+        private long max() {
+            return max.get();
+        }
+
+        private long percentile(double quantile) {
+            long total = count();
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i].sum();
+                if (seen >= Math.max(rank, 1)) {
+                    return Math.min(upperBound(i), max());
+                }
+            }
+            return max();
+        }
+    }
+}
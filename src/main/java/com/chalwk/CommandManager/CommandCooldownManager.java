@@ -2,113 +2,153 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.CommandManager;
 
-import net.dv8tion.jda.api.entities.User;
+import com.chalwk.util.LongObjectMap;
+import com.chalwk.util.Scheduler;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * Manages command cooldowns by storing and checking command usage timestamps for each user and command.
+ * Rate-limits commands per user with a token bucket for each command, shared by all commands.
+ * <p>
+ * Each bucket is stored as a single {@code long}: its theoretical arrival time (the generic cell rate algorithm), in
+ * nanoseconds. A user's buckets sit together in one array found with a single probe of a primitive-keyed map. A use is
+ * checked and taken in one compare-and-set on the bucket, so two commands racing for the last use cannot both get it.
+ * A user whose buckets have all refilled carries no state, so a periodic sweep drops them and memory stays proportional
+ * to the users active in the last cooldown period.
  */
 public class CommandCooldownManager {
 
     /**
-     * Default cooldown duration for commands, in seconds.
+     * Default cooldown duration for commands, in seconds: the time for one use to be earned back.
      */
     private static final long COOLDOWN_DURATION_SECONDS = 5;
 
     /**
-     * A map containing user IDs as keys and another map for each user with command names as keys and timestamps as values.
+     * How many uses a user may make back to back before the cooldown applies.
      */
-    private final ConcurrentMap<String, Map<String, Instant>> commandUserCooldowns = new ConcurrentHashMap<>();
+    private static final int BURST = 3;
+
+    private static final int MAX_COMMANDS = 32;
+    private static final long SWEEP_INTERVAL_SECONDS = 60;
+
+    private static final CommandCooldownManager INSTANCE = new CommandCooldownManager();
 
     /**
-     * Checks if a specific command is on cooldown for the given user.
-     *
-     * @param commandName the name of the command to check
-     * @param user        the user executing the command
-     * @return true if the command is not on cooldown, false otherwise
+     * Time origin for the buckets, so stored times are always positive and 0 can mean "full bucket".
      */
-    public boolean isOnCooldown(String commandName, User user) {
-        return !checkCooldown(commandName, user);
-    }
+    private final long origin = System.nanoTime() - 1;
+    private final long interval = TimeUnit.SECONDS.toNanos(COOLDOWN_DURATION_SECONDS);
+    private final long tolerance = interval * (BURST - 1);
 
     /**
-     * Sets a command on cooldown for the given user by updating their timestamp.
-     *
-     * @param commandName the name of the command to set on cooldown
-     * @param user        the user executing the command
+     * Each user's bucket arrival times, indexed by command slot.
      */
-    public void setCooldown(String commandName, User user) {
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.computeIfAbsent(user.getId(), k -> new ConcurrentHashMap<>());
-        userCommandCooldowns.put(commandName, Instant.now());
+    private final LongObjectMap<AtomicLongArray> buckets = new LongObjectMap<>();
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSlot = new AtomicInteger();
+
+    private CommandCooldownManager() {
+        Scheduler.scheduleAtFixedRate(this::evictIdle, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
     }
 
     /**
-     * Checks if the given command is on cooldown for the specified user by comparing their last execution timestamp with
-     * the current time.
+     * Gets the rate limiter shared by all commands.
      *
-     * @param commandName the name of the command to check
-     * @param user        the user executing the command
-     * @return true if the command is on cooldown, false otherwise
+     * @return the shared instance
      */
-    private boolean checkCooldown(String commandName, User user) {
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.get(user.getId());
-        if (userCommandCooldowns == null) {
-            return false;
-        }
+    public static CommandCooldownManager getInstance() {
+        return INSTANCE;
+    }
 
-        Instant lastExecutionTime = userCommandCooldowns.get(commandName);
-        if (lastExecutionTime == null) {
-            return false;
-        }
+    private long now() {
+        return System.nanoTime() - origin;
+    }
 
-        long elapsedTime = Duration.between(lastExecutionTime, Instant.now()).getSeconds();
-        return elapsedTime >= getCooldownDuration();
+    private int slotOf(String commandName) {
+        return slots.computeIfAbsent(commandName, name -> {
+            int slot = nextSlot.getAndIncrement();
+            if (slot >= MAX_COMMANDS) {
+                throw new IllegalStateException("Too many rate-limited commands");
+            }
+            return slot;
+        });
     }
 
     /**
-     * Handles a cooldown error by sending a message to the user and setting the command on cooldown.
+     * Takes one use of the command from the user's bucket if it has one left.
      *
-     * @param event the event containing the command and user
+     * @return 0 if the use was taken, otherwise how long the user must wait for the next one, in nanoseconds
      */
-    public void handleCooldownError(SlashCommandInteractionEvent event) {
-        String commandName = event.getName();
-        User user = event.getUser();
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.get(user.getId());
-        Instant lastExecutionTime = userCommandCooldowns.get(commandName);
-        long elapsedTime = Duration.between(lastExecutionTime, Instant.now()).getSeconds();
-        long remainingTime = getCooldownDuration() - elapsedTime;
-        if (remainingTime > 0) {
-            event.reply(String.format("Cooldown in progress. Please wait %d seconds before using the command again.", remainingTime))
-                    .setEphemeral(true).queue();
+    private long tryUse(String commandName, long userId) {
+        int slot = slotOf(commandName);
+        AtomicLongArray userBuckets = buckets.computeIfAbsent(userId, id -> new AtomicLongArray(MAX_COMMANDS));
+        while (true) {
+            long now = now();
+            long arrival = userBuckets.get(slot);
+            long wait = arrival - tolerance - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (userBuckets.compareAndSet(slot, arrival, Math.max(arrival, now) + interval)) {
+                return 0;
+            }
         }
     }
 
     /**
-     * Checks if a command is on cooldown for the given user and handles cooldown errors if necessary.
+     * Takes one use of a command from the user who ran it, or tells the user how long to wait if none is left.
      *
      * @param event the event containing the command and user
-     * @return true if the command is on cooldown and an error has been handled, false otherwise
+     * @return true if the command may run, false if it is on cooldown and the user has been answered
      */
-    public boolean isOnCooldown(SlashCommandInteractionEvent event) {
-        String commandName = event.getName();
-        User user = event.getUser();
-        Map<String, Instant> userCommandCooldowns = commandUserCooldowns.get(user.getId());
-        if (userCommandCooldowns == null || !userCommandCooldowns.containsKey(commandName)) {
-            return false;
-        }
-        if (isOnCooldown(commandName, user)) {
-            handleCooldownError(event);
+    public boolean tryUse(SlashCommandInteractionEvent event) {
+        long wait = tryUse(event.getName(), event.getUser().getIdLong());
+        if (wait == 0) {
             return true;
         }
+        long seconds = (wait + 999_999_999) / 1_000_000_000;
+        event.reply(String.format("Cooldown in progress. Please wait %d seconds before using the command again.", seconds))
+                .setEphemeral(true).queue();
         return false;
     }
 
+    /**
+     * Drops users whose buckets have all refilled. A use recorded between the check and the removal is forgotten,
+     * which only ever errs towards letting a command through.
+     */
+    private void evictIdle() {
+        long now = now();
+        List<Long> idle = new ArrayList<>();
+        buckets.forEachEntry((userId, userBuckets) -> {
+            for (int slot = 0; slot < userBuckets.length(); slot++) {
+                if (userBuckets.get(slot) > now) return;
+            }
+            idle.add(userId);
+        });
+        for (long userId : idle) {
+            AtomicLongArray userBuckets = buckets.get(userId);
+            if (userBuckets != null) {
+                buckets.remove(userId, userBuckets);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of users currently holding rate-limit state.
+     *
+     * @return the number of tracked users
+     */
+    public int getTrackedUsers() {
+        return buckets.size();
+    }
+
     /**
      * Gets the cooldown duration, in seconds, for commands.
      *
@@ -117,4 +157,4 @@ public class CommandCooldownManager {
     public long getCooldownDuration() {
         return COOLDOWN_DURATION_SECONDS;
     }
-}
\ No newline at end of file
+}
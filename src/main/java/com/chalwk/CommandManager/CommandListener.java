@@ -2,58 +2,162 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.CommandManager;
 
+import com.chalwk.metrics.MetricsWriter;
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Scheduler;
+import com.chalwk.util.fileIO;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 import org.jetbrains.annotations.NotNull;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A listener class for registering and handling commands in the Virtual Pets game project.
  * It extends JDA's ListenerAdapter class and overrides its methods to manage command execution.
+ * <p>
+ * The gateway thread only looks the command up by name and hands the event to a worker pool, so a slow command
+ * (disk access, an engine search) never holds up other events on the shard. Each command's run time is recorded.
  */
 public class CommandListener extends ListenerAdapter {
 
+    private static final int WORKERS = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+    private static final long STATS_LOG_INTERVAL_MINUTES = 15;
+
     /**
-     * A list of CommandInterface implementations representing available commands.
+     * The available commands, indexed by name. Filled before the listener is registered and read-only afterwards.
      */
-    private final List<CommandInterface> commands = new ArrayList<>();
+    private final Map<String, CommandInterface> commands = new LinkedHashMap<>();
+    private final Map<String, CommandStats> stats = new LinkedHashMap<>();
+    private final ThreadPoolExecutor executor = createExecutor();
+
+    /**
+     * The hash of the command definitions last registered, read at startup; null if commands were never registered
+     * globally.
+     */
+    private final String storedHash = fileIO.loadCommandHash();
+
+    public CommandListener() {
+        Scheduler.scheduleAtFixedRate(this::logStats, STATS_LOG_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "command-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
     /**
-     * Registers all available commands in all guilds upon JDA's ready event.
+     * Registers the commands once per bot rather than once per guild: the first shard replaces the global command list
+     * with a single bulk update, and only if the definitions changed since the last registration. Every shard also
+     * clears the per-guild commands older versions registered, once, the first time the bot starts with global commands.
      *
      * @param event The ReadyEvent object containing JDA's initialization details.
      */
     @Override
     public void onReady(@NotNull ReadyEvent event) {
-        for (Guild guild : event.getJDA().getGuilds()) {
-            for (CommandInterface command : commands) {
-                guild.upsertCommand(command.getName(), command.getDescription()).addOptions(command.getOptions()).queue();
+        JDA jda = event.getJDA();
+        if (storedHash == null) {
+            for (Guild guild : jda.getGuilds()) {
+                guild.updateCommands().queue();
             }
         }
+        if (jda.getShardInfo().getShardId() != 0) {
+            return;
+        }
+
+        List<SlashCommandData> definitions = new ArrayList<>();
+        for (CommandInterface command : commands.values()) {
+            definitions.add(Commands.slash(command.getName(), command.getDescription())
+                    .addOptions(command.getOptions())
+                    .setGuildOnly(true));
+        }
+        String hash = hash(definitions);
+        if (hash.equals(storedHash)) {
+            Logger.info("Slash commands unchanged, skipping registration");
+            return;
+        }
+
+        jda.updateCommands().addCommands(definitions).queue(
+                registered -> {
+                    fileIO.saveCommandHash(hash);
+                    Logger.info("Registered {} slash commands", registered.size());
+                },
+                error -> Logger.warning("Failed to register slash commands: {}", error.getMessage()));
+    }
+
+    /**
+     * Hashes the command definitions as they are sent to Discord, so any change to a name, description or option
+     * gives a different hash.
+     */
+    private static String hash(List<SlashCommandData> definitions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JVM provides SHA-256
+        }
+        for (SlashCommandData definition : definitions) {
+            digest.update(definition.toData().toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     /**
-     * Executes the appropriate command based on the given slash command interaction event.
+     * Looks up the command for the event and runs it on a worker thread.
      *
      * @param event The SlashCommandInteractionEvent object containing command event details.
-     * @throws IOException if an error occurs during command execution.
      */
     @Override
     public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
-        for (CommandInterface command : commands) {
-            String cmd = event.getName();
-            if (cmd.equals(command.getName())) {
-                try {
-                    command.execute(event);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                return;
+        CommandInterface command = commands.get(event.getName());
+        if (command == null) {
+            return;
+        }
+        CommandStats commandStats = stats.get(command.getName());
+        long queuedAt = System.nanoTime();
+        executor.execute(() -> run(command, commandStats, event, queuedAt));
+    }
+
+    private void run(CommandInterface command, CommandStats commandStats, SlashCommandInteractionEvent event, long queuedAt) {
+        long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            command.execute(event);
+        } catch (Exception e) {
+            failed = true;
+            Logger.severe("Command /{} failed", command.getName(), e);
+            if (!event.isAcknowledged()) {
+                event.reply("## Something went wrong while running this command.").setEphemeral(true).queue();
+            }
+        } finally {
+            commandStats.record(start - queuedAt, System.nanoTime() - start, failed);
+        }
+    }
+
+    private void logStats() {
+        for (CommandStats commandStats : stats.values()) {
+            if (commandStats.getInvocations() > 0) {
+                Logger.info(commandStats.toString());
             }
         }
     }
@@ -64,6 +168,37 @@ public class CommandListener extends ListenerAdapter {
      * @param command The CommandInterface instance representing the new command.
      */
     public void add(CommandInterface command) {
-        commands.add(command);
+        commands.put(command.getName(), command);
+        stats.put(command.getName(), new CommandStats(command.getName()));
+    }
+
+    /**
+     * Gets the execution statistics of every registered command.
+     *
+     * @return the statistics, in registration order
+     */
+    public Collection<CommandStats> getStats() {
+        return Collections.unmodifiableCollection(stats.values());
+    }
+
+    /**
+     * Writes the per-command counters and run time histograms for the metrics endpoint.
+     *
+     * @param out the writer to add the metrics to
+     */
+    public void writeMetrics(MetricsWriter out) {
+        out.family("tictactoe_command_invocations_total", "counter", "Slash commands executed.");
+        for (CommandStats commandStats : stats.values()) {
+            out.sample("tictactoe_command_invocations_total", commandStats.getInvocations(), "command", commandStats.getName());
+        }
+        out.family("tictactoe_command_failures_total", "counter", "Slash commands that threw an exception.");
+        for (CommandStats commandStats : stats.values()) {
+            out.sample("tictactoe_command_failures_total", commandStats.getFailures(), "command", commandStats.getName());
+        }
+        out.family("tictactoe_command_duration_seconds", "histogram", "Time spent running a slash command.");
+        for (CommandStats commandStats : stats.values()) {
+            out.histogram("tictactoe_command_duration_seconds", commandStats.getLatency(), "command", commandStats.getName());
+        }
+        out.gauge("tictactoe_command_queue_depth", "Commands waiting for a worker thread.", executor.getQueue().size());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.CommandManager;
+
+import com.chalwk.metrics.Histogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Execution counters for one command: how often it ran, how often it failed, and how long it took.
+ * Updated by the worker threads without locking.
+ */
+public class CommandStats {
+
+    private final String name;
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder queuedNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final Histogram latency = new Histogram();
+
+    public CommandStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Records one execution.
+     *
+     * @param waitNanos the time the event waited for a worker
+     * @param runNanos  the time the command took to run
+     * @param failed    true if the command threw
+     */
+    void record(long waitNanos, long runNanos, boolean failed) {
+        invocations.increment();
+        queuedNanos.add(waitNanos);
+        totalNanos.add(runNanos);
+        maxNanos.accumulateAndGet(runNanos, Math::max);
+        latency.record(runNanos);
+        if (failed) {
+            failures.increment();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getInvocations() {
+        return invocations.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Gets the distribution of run times.
+     *
+     * @return the run time histogram
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Gets the mean time spent waiting for a worker thread.
+     *
+     * @return the mean wait in nanoseconds, or 0 if the command never ran
+     */
+    public long getMeanQueuedNanos() {
+        long count = invocations.sum();
+        return count == 0 ? 0 : queuedNanos.sum() / count;
+    }
+
+    /**
+     * Gets the mean execution time.
+     *
+     * @return the mean run time in nanoseconds, or 0 if the command never ran
+     */
+    public long getMeanNanos() {
+        long count = invocations.sum();
+        return count == 0 ? 0 : totalNanos.sum() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "/" + name + ": calls=" + getInvocations() + " failures=" + getFailures()
+                + " mean=" + getMeanNanos() / 1000 + "us max=" + getMaxNanos() / 1000
+                + "us queued=" + getMeanQueuedNanos() / 1000 + "us";
+    }
+}
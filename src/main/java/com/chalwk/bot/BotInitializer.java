@@ -5,16 +5,24 @@ package com.chalwk.bot;
 
 import com.chalwk.CommandManager.CommandListener;
 import com.chalwk.commands.*;
+import com.chalwk.game.ChannelRegistry;
+import com.chalwk.game.GameJournal;
 import com.chalwk.game.GameManager;
+import com.chalwk.metrics.MetricsServer;
+import com.chalwk.metrics.MetricsWriter;
+import com.chalwk.util.Logging.Logger;
 import com.chalwk.util.authentication;
-import net.dv8tion.jda.api.OnlineStatus;
-import net.dv8tion.jda.api.entities.Activity;
-import net.dv8tion.jda.api.requests.GatewayIntent;
-import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import com.chalwk.util.fileIO;
+import com.chalwk.util.settings;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.sharding.ShardManager;
-import net.dv8tion.jda.api.utils.MemberCachePolicy;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * A class responsible for initializing and setting up the bot for the Virtual Pets game project.
@@ -34,13 +42,29 @@ public class BotInitializer {
     private final String token;
 
     /**
-     * Constructs a BotInitializer instance and retrieves the bot's authentication token.
+     * Channel IDs from an older config file that still need to be assigned to their guild.
+     */
+    private final List<Long> legacyChannels;
+
+    /**
+     * Constructs a BotInitializer instance, loads the game channel configuration and retrieves the bot's
+     * authentication token.
      *
      * @throws IOException if there's an error reading the token file.
      */
     public BotInitializer() throws IOException {
-        gameManager = new GameManager();
+        ChannelRegistry channels = new ChannelRegistry();
+        this.legacyChannels = fileIO.loadChannels(channels);
+        fileIO.watchConfig(channels);
+        gameManager = new GameManager(channels);
         this.token = authentication.getToken();
+
+        GameJournal journal = new GameJournal(Paths.get("games.journal"));
+        gameManager.recoverGames(journal);
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "game-journal-shutdown"));
+
+        gameManager.getRatings().open(Paths.get("ratings.txt"));
+        Runtime.getRuntime().addShutdownHook(new Thread(gameManager.getRatings()::save, "ratings-shutdown"));
     }
 
     public static GameManager getGameManager() {
@@ -56,25 +80,69 @@ public class BotInitializer {
      */
     public void initializeBot() {
 
-        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createDefault(this.token)
-                .setStatus(OnlineStatus.ONLINE)
-                .setActivity(Activity.playing("Tic-Tac-Toe"))
-                .setMemberCachePolicy(MemberCachePolicy.ALL)
-                .enableIntents(GatewayIntent.GUILD_MEMBERS,
-                        GatewayIntent.GUILD_MESSAGES,
-                        GatewayIntent.GUILD_PRESENCES,
-                        GatewayIntent.MESSAGE_CONTENT);
-
-        shardManager = builder.build();
-        registerCommands(shardManager);
+        GatewayProfile profile = settings.getGatewayProfile();
+        Logger.info("Connecting with the {} gateway profile", profile);
+        shardManager = profile.builder(this.token).build();
+        CommandListener commands = registerCommands(shardManager);
+        startMetrics(commands);
+    }
+
+    /**
+     * Starts the local metrics endpoint, unless it is turned off. The bot keeps running if the port is taken.
+     *
+     * @param commands the command listener whose statistics are exported
+     */
+    private void startMetrics(CommandListener commands) {
+        int port = settings.getMetricsPort();
+        if (port < 0) {
+            return;
+        }
+
+        MetricsServer metrics = new MetricsServer(port);
+        metrics.register(commands::writeMetrics);
+        metrics.register(gameManager::writeMetrics);
+        metrics.register(BotInitializer::writeShardMetrics);
+        try {
+            metrics.start();
+        } catch (IOException e) {
+            Logger.warning("Failed to start the metrics endpoint on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes each shard's gateway ping and the number of REST requests waiting on its rate-limit pool, and the size of
+     * the gateway caches next to the heap they live in.
+     */
+    private static void writeShardMetrics(MetricsWriter out) {
+        List<JDA> shards = shardManager.getShards();
+        out.family("tictactoe_gateway_ping_seconds", "gauge", "Heartbeat round trip to the Discord gateway, -1 if not connected.");
+        for (JDA shard : shards) {
+            long ping = shard.getGatewayPing();
+            out.sample("tictactoe_gateway_ping_seconds", ping < 0 ? -1 : ping / 1000.0, "shard", shardId(shard));
+        }
+        out.family("tictactoe_rest_queue_depth", "gauge", "REST requests scheduled on the rate-limit pool.");
+        for (JDA shard : shards) {
+            ScheduledExecutorService pool = shard.getRateLimitPool();
+            int depth = pool instanceof ThreadPoolExecutor executor ? executor.getQueue().size() : 0;
+            out.sample("tictactoe_rest_queue_depth", depth, "shard", shardId(shard));
+        }
+        out.gauge("tictactoe_cached_guilds", "Guilds held in the gateway cache.", shardManager.getGuildCache().size());
+        out.gauge("tictactoe_cached_users", "Users held in the gateway cache.", shardManager.getUserCache().size());
+        out.gauge("tictactoe_heap_used_bytes", "Heap in use, including garbage not yet collected.",
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    private static String shardId(JDA shard) {
+        return Integer.toString(shard.getShardInfo().getShardId());
     }
 
     /**
      * Registers the available commands for the bot.
      *
      * @param shardManager The ShardManager instance used to manage the bot.
+     * @return the listener the commands were registered with
      */
-    private void registerCommands(ShardManager shardManager) {
+    private CommandListener registerCommands(ShardManager shardManager) {
         CommandListener commands = new CommandListener();
         commands.add(new invite(gameManager));
         commands.add(new accept(gameManager));
@@ -82,6 +150,11 @@ public class BotInitializer {
         commands.add(new channel(gameManager));
         commands.add(new cancel(gameManager));
         commands.add(new makeMove(gameManager));
+        commands.add(new playVsBot(gameManager));
+        commands.add(new leaderboard(gameManager));
+        commands.add(new rank(gameManager));
         shardManager.addEventListener(commands);
+        shardManager.addEventListener(new ChannelListener(gameManager.getChannels(), legacyChannels));
+        return commands;
     }
 }
@@ -0,0 +1,75 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.bot;
+
+import com.chalwk.game.ChannelRegistry;
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.fileIO;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.channel.ChannelDeleteEvent;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Keeps the {@link ChannelRegistry} in line with the guilds' actual channels.
+ */
+public class ChannelListener extends ListenerAdapter {
+
+    private final ChannelRegistry registry;
+
+    /**
+     * Channel IDs from an older config file that were saved without their guild.
+     */
+    private final List<Long> legacyChannels;
+
+    public ChannelListener(ChannelRegistry registry, List<Long> legacyChannels) {
+        this.registry = registry;
+        this.legacyChannels = legacyChannels;
+    }
+
+    /**
+     * Assigns legacy channel IDs to their guild once the shard that sees them is connected.
+     *
+     * @param event The ReadyEvent object containing JDA's initialization details.
+     */
+    @Override
+    public void onReady(@NotNull ReadyEvent event) {
+        fileIO.updateChannels(registry, () -> {
+            boolean migrated = false;
+            synchronized (legacyChannels) {
+                for (int i = legacyChannels.size() - 1; i >= 0; i--) {
+                    TextChannel channel = event.getJDA().getTextChannelById(legacyChannels.get(i));
+                    if (channel != null) {
+                        registry.setChannel(channel.getGuild().getIdLong(), channel.getIdLong());
+                        legacyChannels.remove(i);
+                        migrated = true;
+                    }
+                }
+            }
+            return migrated;
+        });
+    }
+
+    /**
+     * Drops the configuration and cached handle of a deleted game channel.
+     *
+     * @param event The ChannelDeleteEvent object containing the deleted channel.
+     */
+    @Override
+    public void onChannelDelete(@NotNull ChannelDeleteEvent event) {
+        if (!event.isFromGuild()) return;
+
+        long guildID = event.getGuild().getIdLong();
+        fileIO.updateChannels(registry, () -> {
+            if (!registry.channelDeleted(guildID, event.getChannel().getIdLong())) {
+                return false;
+            }
+            Logger.info("Game channel of guild " + guildID + " was deleted");
+            return true;
+        });
+    }
+}
@@ -0,0 +1,82 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.bot;
+
+import net.dv8tion.jda.api.OnlineStatus;
+import net.dv8tion.jda.api.entities.Activity;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+
+import java.util.EnumSet;
+
+/**
+ * Which gateway intents and caches the bot connects with. Selected with {@code -Dgateway.profile=lean|full}; the
+ * default is {@link #LEAN}.
+ */
+public enum GatewayProfile {
+
+    /**
+     * No optional intents. JDA always requests Discord's {@code GUILDS} intent itself, which is why it has no
+     * {@link GatewayIntent} constant, and that intent is what delivers the guild and channel events keeping the guild and
+     * channel caches {@link com.chalwk.game.ChannelRegistry} looks the game channels up in. Members, presences and
+     * message content are neither received nor cached: slash commands carry the invoking user and member in the
+     * interaction payload, so nothing the bot does needs them.
+     */
+    LEAN {
+        @Override
+        DefaultShardManagerBuilder createBuilder(String token) {
+            return DefaultShardManagerBuilder.createLight(token, EnumSet.noneOf(GatewayIntent.class))
+                    .setMemberCachePolicy(MemberCachePolicy.NONE)
+                    .setChunkingFilter(ChunkingFilter.NONE);
+        }
+    },
+
+    /**
+     * Every member and presence cached, as the bot ran before the lean profile. Costs heap in proportion to the
+     * members of every guild the bot is in.
+     */
+    FULL {
+        @Override
+        DefaultShardManagerBuilder createBuilder(String token) {
+            return DefaultShardManagerBuilder.createDefault(token)
+                    .setMemberCachePolicy(MemberCachePolicy.ALL)
+                    .enableIntents(GatewayIntent.GUILD_MEMBERS,
+                            GatewayIntent.GUILD_MESSAGES,
+                            GatewayIntent.GUILD_PRESENCES,
+                            GatewayIntent.MESSAGE_CONTENT);
+        }
+    };
+
+    /**
+     * Creates a shard manager builder with this profile's intents and caches and the bot's presence.
+     *
+     * @param token the bot's authentication token
+     * @return the builder, ready to add listeners to and build
+     */
+    public DefaultShardManagerBuilder builder(String token) {
+        return createBuilder(token)
+                .setStatus(OnlineStatus.ONLINE)
+                .setActivity(Activity.playing("Tic-Tac-Toe"));
+    }
+
+    abstract DefaultShardManagerBuilder createBuilder(String token);
+
+    /**
+     * Gets a profile by name, ignoring case.
+     *
+     * @param name {@code lean} or {@code full}
+     * @return the profile
+     * @throws IllegalArgumentException if there is no profile with that name
+     */
+    public static GatewayProfile fromName(String name) {
+        for (GatewayProfile profile : values()) {
+            if (profile.name().equalsIgnoreCase(name.trim())) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("Unknown gateway profile: " + name);
+    }
+}
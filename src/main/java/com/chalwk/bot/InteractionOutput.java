@@ -0,0 +1,147 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.bot;
+
+import com.chalwk.game.*;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.utils.FileUpload;
+
+import java.awt.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers a slash command on Discord: private replies are ephemeral, notices are embeds, and the board is an embed with
+ * the board image attached.
+ * <p>
+ * Discord drops an interaction that is not acknowledged within three seconds. A command whose answer waits for a game's
+ * mailbox is deferred before it is queued, and the board is delivered by editing the deferred response once the image
+ * is rendered, so neither the computer's search nor the renderer holds up the acknowledgement and a move costs two
+ * requests: the deferral and the board.
+ */
+public class InteractionOutput implements GameOutput {
+
+    /**
+     * How long to wait for the board image before showing the text board instead.
+     */
+    private static final long RENDER_TIMEOUT_MILLIS = 2000;
+
+    private final SlashCommandInteractionEvent event;
+
+    /**
+     * Whether the interaction was deferred. Written before the command is queued on the game's mailbox and read from
+     * there.
+     */
+    private volatile boolean deferred;
+
+    public InteractionOutput(SlashCommandInteractionEvent event) {
+        this.event = event;
+    }
+
+    /**
+     * Creates the game embed without the board, which is attached by {@link #showBoard}.
+     *
+     * @param game the game to show
+     * @return the embed showing the players, whose turn it is and the win rule
+     */
+    public static EmbedBuilder createGameEmbed(Game game) {
+        return new EmbedBuilder()
+                .setTitle("⭕❌ TIC TAC TOE ❌⭕")
+                .addField("Players: ", Game.mention(game.getInvitingPlayer()) + " VS " + Game.mention(game.getInvitedPlayer()), true)
+                .addField("Turn: ", Game.mention(game.getPlayerToMove()) + " (" + (game.getWhosTurn() == 1 ? "❌" : "⭕") + ")", true)
+                .addField("Win: ", game.getBoard().getWinLength() + " in a row", true)
+                .setColor(Color.BLUE);
+    }
+
+    /**
+     * Defers the interaction publicly, since the answer is almost always the board.
+     */
+    @Override
+    public void acknowledge(Game game) {
+        deferred = true;
+        event.deferReply().queue();
+    }
+
+    @Override
+    public void reply(String message) {
+        if (!deferred) {
+            event.reply(message).setEphemeral(true).queue();
+        } else {
+            // The deferred response is public, so replace it with a private follow-up.
+            event.getHook().deleteOriginal().queue();
+            event.getHook().sendMessage(message).setEphemeral(true).queue();
+        }
+    }
+
+    @Override
+    public void announce(Notice notice) {
+        EmbedBuilder embed = new EmbedBuilder()
+                .setTitle(notice.title())
+                .setDescription(notice.description())
+                .setColor(notice.color());
+        if (notice.footer() != null) {
+            embed.setFooter(notice.footer());
+        }
+        if (deferred) {
+            event.getHook().editOriginalEmbeds(embed.build()).queue();
+        } else {
+            event.replyEmbeds(embed.build()).queue();
+        }
+    }
+
+    @Override
+    public void showBoard(Game game, BoardState state) {
+        EmbedBuilder embed = createGameEmbed(game);
+        switch (state) {
+            case PLAYER1_WINS -> embed.setColor(Color.GREEN)
+                    .setDescription("Game Over! " + Game.mention(game.getInvitingPlayer()) + " wins!");
+            case PLAYER2_WINS -> embed.setColor(Color.RED)
+                    .setDescription("Game Over! " + Game.mention(game.getInvitedPlayer()) + " wins!");
+            case DRAW -> embed.setColor(Color.YELLOW).setDescription("Game Over! It's a draw!");
+            case IN_PROGRESS -> {
+            }
+        }
+        Ratings.Change ratings = game.getRatingChange();
+        if (state.isOver() && ratings != null) {
+            embed.addField("Ratings: ", Game.mention(game.getInvitingPlayer()) + " " + ratings.invitingRating()
+                    + " (" + signed(ratings.delta()) + ")\n" + Game.mention(game.getInvitedPlayer()) + " "
+                    + ratings.invitedRating() + " (" + signed(-ratings.delta()) + ")", false);
+        }
+        publishBoard(game, embed);
+    }
+
+    private static String signed(int delta) {
+        return delta < 0 ? Integer.toString(delta) : "+" + delta;
+    }
+
+    /**
+     * Answers the command with the board. The interaction is deferred unless it already is, and the board is delivered
+     * in the one edit of the deferred response: with the image once it is rendered, or as text if rendering fails or
+     * is late.
+     */
+    private void publishBoard(Game game, EmbedBuilder embed) {
+        if (!deferred) {
+            deferred = true;
+            event.deferReply().queue();
+        }
+
+        Board board = game.getBoard();
+        String text = board.printBoard();
+        InteractionHook hook = event.getHook();
+        BoardImageRenderer.render(board)
+                .completeOnTimeout(null, RENDER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+                .whenComplete((png, error) -> {
+                    if (png != null) {
+                        embed.setImage("attachment://" + BoardImageRenderer.FILE_NAME);
+                        hook.editOriginalEmbeds(embed.build())
+                                .setFiles(FileUpload.fromData(png, BoardImageRenderer.FILE_NAME))
+                                .queue();
+                    } else {
+                        embed.addField("Board: ", "```" + text + "```", false);
+                        hook.editOriginalEmbeds(embed.build()).queue();
+                    }
+                });
+    }
+}
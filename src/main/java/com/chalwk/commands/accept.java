@@ -4,10 +4,12 @@ package com.chalwk.commands;
 
 import com.chalwk.CommandManager.CommandCooldownManager;
 import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.bot.InteractionOutput;
 import com.chalwk.game.GameManager;
 import com.chalwk.util.settings;
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.util.ArrayList;
@@ -15,7 +17,7 @@ import java.util.List;
 
 public class accept implements CommandInterface {
 
-    private static final CommandCooldownManager COOLDOWN_MANAGER = new CommandCooldownManager();
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
 
     private final GameManager gameManager;
 
@@ -35,26 +37,23 @@ public class accept implements CommandInterface {
 
     @Override
     public List<OptionData> getOptions() {
-        return new ArrayList<>();
+        List<OptionData> options = new ArrayList<>();
+        options.add(new OptionData(OptionType.USER, "opponent", "The player whose invite to accept (default: the oldest invite)", false));
+        return options;
     }
 
     @Override
     public void execute(SlashCommandInteractionEvent event) {
-        if (COOLDOWN_MANAGER.isOnCooldown(event)) return;
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
 
         if (settings.notCorrectChannel(event)) return;
 
-        User acceptingPlayer = event.getUser();
-
-        if (gameManager.isInGame(acceptingPlayer)) {
-            event.reply("## You are already in a game.").setEphemeral(true).queue();
-            return;
-        } else if (gameManager.getPendingInvites().containsKey(acceptingPlayer)) {
-            gameManager.acceptInvite(acceptingPlayer, event);
-        } else {
-            event.reply("## You don't have any pending invites.").setEphemeral(true).queue();
-        }
+        long acceptingPlayer = event.getUser().getIdLong();
+        gameManager.acceptInvite(acceptingPlayer, opponent(event), event.getGuild().getIdLong(), new InteractionOutput(event));
+    }
 
-        COOLDOWN_MANAGER.setCooldown(getName(), event.getUser());
+    private static long opponent(SlashCommandInteractionEvent event) {
+        OptionMapping opponent = event.getOption("opponent");
+        return opponent == null ? 0 : opponent.getAsUser().getIdLong();
     }
 }
@@ -4,6 +4,7 @@ package com.chalwk.commands;
 
 import com.chalwk.CommandManager.CommandCooldownManager;
 import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.game.ChannelRegistry;
 import com.chalwk.game.GameManager;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Member;
@@ -20,7 +21,7 @@ import static com.chalwk.util.fileIO.saveChannelID;
 
 public class channel implements CommandInterface {
 
-    private static final CommandCooldownManager COOLDOWN_MANAGER = new CommandCooldownManager();
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
     private final GameManager gameManager;
 
     public channel(GameManager gameManager) {
@@ -55,38 +56,46 @@ public class channel implements CommandInterface {
     @Override
     public void execute(SlashCommandInteractionEvent event) {
 
-        if (COOLDOWN_MANAGER.isOnCooldown(event)) return;
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
 
         String optionName = event.getOptions().get(0).getName();
         String optionValue = event.getOption(optionName).getAsString();
 
         TextChannel channel = event.getOption("channel").getAsChannel().asTextChannel();
 
-        String channelID = channel.getId();
         boolean isAddOperation = optionValue.equals("add");
 
         if (initialErrorChecking(event, channel)) return;
+
+        long guildID = event.getGuild().getIdLong();
+        long channelID = channel.getIdLong();
+        ChannelRegistry registry = gameManager.getChannels();
+
         if (isAddOperation) {
-            if (isChannelIdConfigured(channelID)) {
+            if (registry.getChannelId(guildID) != 0) {
                 event.reply("## Channel ID is already configured!").setEphemeral(true).queue();
                 return;
             }
         } else {
-            if (!isChannelIdConfigured(channelID)) {
+            if (!isChannelIdConfigured(guildID, channelID, registry)) {
                 event.reply("## Channel ID is not configured! Unable to remove.").setEphemeral(true).queue();
                 return;
             }
         }
 
-        saveChannelID(channelID, isAddOperation, event, gameManager);
-        COOLDOWN_MANAGER.setCooldown(getName(), event.getUser());
+        saveChannelID(guildID, channelID, isAddOperation, event, registry);
     }
 
+    /**
+     * Checks that the user may change the game channel and that the channel is valid.
+     *
+     * @return true if a check failed and the user has been answered, false if the command may go on
+     */
     private boolean initialErrorChecking(SlashCommandInteractionEvent event, TextChannel channel) {
         Member member = event.getMember();
         if (!member.hasPermission(Permission.ADMINISTRATOR)) {
             event.reply("## You must be an administrator to use this command!").setEphemeral(true).queue();
-            return false;
+            return true;
         } else if (channel == null) {
             event.reply("## Invalid channel ID!").setEphemeral(true).queue();
             return true;
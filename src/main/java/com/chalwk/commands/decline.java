@@ -4,10 +4,12 @@ package com.chalwk.commands;
 
 import com.chalwk.CommandManager.CommandCooldownManager;
 import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.bot.InteractionOutput;
 import com.chalwk.game.GameManager;
 import com.chalwk.util.settings;
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 
 import java.util.ArrayList;
@@ -15,7 +17,7 @@ import java.util.List;
 
 public class decline implements CommandInterface {
 
-    private static final CommandCooldownManager COOLDOWN_MANAGER = new CommandCooldownManager();
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
     private final GameManager gameManager;
 
     public decline(GameManager gameManager) {
@@ -34,23 +36,23 @@ public class decline implements CommandInterface {
 
     @Override
     public List<OptionData> getOptions() {
-        return new ArrayList<>();
+        List<OptionData> options = new ArrayList<>();
+        options.add(new OptionData(OptionType.USER, "opponent", "The player whose invite to decline (default: the oldest invite)", false));
+        return options;
     }
 
     @Override
     public void execute(SlashCommandInteractionEvent event) {
-        if (COOLDOWN_MANAGER.isOnCooldown(event)) return;
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
 
         if (settings.notCorrectChannel(event)) return;
 
-        User decliningPlayer = event.getUser();
-
-        if (!gameManager.getPendingInvites().containsKey(decliningPlayer)) {
-            event.reply("## You don't have any pending invites.").setEphemeral(true).queue();
-            return;
-        }
+        long decliningPlayer = event.getUser().getIdLong();
+        gameManager.declineInvite(decliningPlayer, opponent(event), new InteractionOutput(event));
+    }
 
-        gameManager.declineInvite(decliningPlayer, event);
-        COOLDOWN_MANAGER.setCooldown(getName(), event.getUser());
+    private static long opponent(SlashCommandInteractionEvent event) {
+        OptionMapping opponent = event.getOption("opponent");
+        return opponent == null ? 0 : opponent.getAsUser().getIdLong();
     }
 }
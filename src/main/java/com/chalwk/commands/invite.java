@@ -4,6 +4,7 @@ package com.chalwk.commands;
 
 import com.chalwk.CommandManager.CommandCooldownManager;
 import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.bot.InteractionOutput;
 import com.chalwk.game.GameManager;
 import com.chalwk.util.settings;
 import net.dv8tion.jda.api.entities.User;
@@ -17,7 +18,7 @@ import java.util.List;
 
 public class invite implements CommandInterface {
 
-    private static final CommandCooldownManager COOLDOWN_MANAGER = new CommandCooldownManager();
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
     private final GameManager gameManager;
 
     public invite(GameManager gameManager) {
@@ -50,12 +51,18 @@ public class invite implements CommandInterface {
         option.addChoice("9x9", 9);
 
         options.add(option);
+
+        OptionData winLength = new OptionData(OptionType.INTEGER, "win-length", "Marks in a row needed to win (default: the board size)", false);
+        for (int length = 3; length <= 9; length++) {
+            winLength.addChoice(length + " in a row", length);
+        }
+        options.add(winLength);
         return options;
     }
 
     @Override
     public void execute(SlashCommandInteractionEvent event) {
-        if (COOLDOWN_MANAGER.isOnCooldown(event)) return;
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
 
         if (settings.notCorrectChannel(event)) return;
 
@@ -66,9 +73,14 @@ public class invite implements CommandInterface {
         //if (isSelf(event, userToInvite, invitingPlayer)) return;
 
         int size = sizeOption.getAsInt();
+        OptionMapping winLengthOption = event.getOption("win-length");
+        int winLength = winLengthOption == null ? size : winLengthOption.getAsInt();
+        if (winLength > size) {
+            event.reply("## The win length can't be larger than the board size.").setEphemeral(true).queue();
+            return;
+        }
 
-        gameManager.invitePlayer(invitingPlayer, userToInvite, size, event);
-        COOLDOWN_MANAGER.setCooldown(getName(), event.getUser());
+        gameManager.invitePlayer(invitingPlayer.getIdLong(), userToInvite.getIdLong(), size, winLength, new InteractionOutput(event));
     }
 
     private boolean isSelf(SlashCommandInteractionEvent event, User userToInvite, User invitingPlayer) {
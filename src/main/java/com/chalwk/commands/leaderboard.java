@@ -0,0 +1,79 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.commands;
+
+import com.chalwk.CommandManager.CommandCooldownManager;
+import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.game.Game;
+import com.chalwk.game.GameManager;
+import com.chalwk.game.Ratings;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class leaderboard implements CommandInterface {
+
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
+    private static final int PAGE_SIZE = 10;
+
+    private final GameManager gameManager;
+
+    public leaderboard(GameManager gameManager) {
+        this.gameManager = gameManager;
+    }
+
+    @Override
+    public String getName() {
+        return "leaderboard";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Show the highest rated players";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        List<OptionData> options = new ArrayList<>();
+        options.add(new OptionData(OptionType.INTEGER, "page", "The page of the leaderboard to show (default: 1)", false)
+                .setRequiredRange(1, Integer.MAX_VALUE / PAGE_SIZE));
+        return options;
+    }
+
+    @Override
+    public void execute(SlashCommandInteractionEvent event) {
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
+
+        OptionMapping pageOption = event.getOption("page");
+        int page = pageOption == null ? 1 : pageOption.getAsInt();
+
+        Ratings ratings = gameManager.getRatings();
+        List<Ratings.Standing> standings = ratings.getTop((page - 1) * PAGE_SIZE, PAGE_SIZE);
+        if (standings.isEmpty()) {
+            event.reply(page == 1 ? "## No rated games have been played yet." : "## There are not that many rated players.")
+                    .setEphemeral(true).queue();
+            return;
+        }
+
+        StringBuilder board = new StringBuilder();
+        for (Ratings.Standing standing : standings) {
+            board.append("**#").append(standing.rank()).append("** ").append(Game.mention(standing.player()))
+                    .append(" - ").append(standing.rating())
+                    .append(" (").append(standing.wins()).append("W ").append(standing.losses()).append("L ")
+                    .append(standing.draws()).append("D)\n");
+        }
+        int pages = (ratings.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        event.replyEmbeds(new EmbedBuilder()
+                .setTitle("🏆 Leaderboard")
+                .setDescription(board)
+                .setFooter("Page " + page + " of " + pages + " - " + ratings.size() + " rated players")
+                .setColor(Color.ORANGE)
+                .build()).queue();
+    }
+}
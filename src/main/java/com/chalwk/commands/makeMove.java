@@ -4,12 +4,9 @@ package com.chalwk.commands;
 
 import com.chalwk.CommandManager.CommandCooldownManager;
 import com.chalwk.CommandManager.CommandInterface;
-import com.chalwk.game.Board;
-import com.chalwk.game.BoardState;
-import com.chalwk.game.Game;
+import com.chalwk.bot.InteractionOutput;
 import com.chalwk.game.GameManager;
 import com.chalwk.util.settings;
-import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
@@ -18,7 +15,7 @@ import java.util.List;
 
 public class makeMove implements CommandInterface {
 
-    private static final CommandCooldownManager COOLDOWN_MANAGER = new CommandCooldownManager();
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
     private final GameManager gameManager;
 
     public makeMove(GameManager gameManager) {
@@ -45,59 +42,14 @@ public class makeMove implements CommandInterface {
 
     @Override
     public void execute(SlashCommandInteractionEvent event) {
-        if (COOLDOWN_MANAGER.isOnCooldown(event)) return;
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
 
         if (settings.notCorrectChannel(event)) return;
 
-        User player = event.getUser();
-
-        if (!gameManager.isInGame(player)) {
-            event.reply("## You are not in a game.").setEphemeral(true).queue();
-            return;
-        }
-
-        Game game = gameManager.getGame(player);
-        if (!game.isPlayer(player)) return; // only the players in this specific game can play
-
+        long player = event.getUser().getIdLong();
         int row = event.getOption("row").getAsInt();
         int col = event.getOption("col").getAsInt();
 
-        Board board = game.getBoard();
-
-        int makeMove = board.makeMove(row, col, game.getWhosTurn());
-        if (makeMove == 0) {
-            event.reply("Invalid move. Row and column numbers must be between 0 and " + (board.getROWS() - 1) + ".").setEphemeral(true).queue();
-            return;
-        } else if (makeMove == 1) {
-            event.reply("Invalid move. The cell is already occupied.").setEphemeral(true).queue();
-            return;
-        }
-
-        // Check the game state after the move
-        BoardState state = determineGameState(board);
-        if (state != BoardState.IN_PROGRESS) {
-            event.reply("The game has already ended!").setEphemeral(true).queue();
-            return;
-        }
-
-        game.setWhosTurn();
-        game.updateGameEmbed(event, state);
-        COOLDOWN_MANAGER.setCooldown(getName(), event.getUser());
-    }
-
-    /**
-     * Determines the current game state based on the board.
-     *
-     * @param board the current game board
-     * @return the current state of the game
-     */
-    private BoardState determineGameState(Board board) {
-        int progress = board.checkWinner();
-        return switch (progress) {
-            case 1 -> BoardState.PLAYER1_WINS;
-            case 2 -> BoardState.PLAYER2_WINS;
-            case 0 -> BoardState.DRAW;
-            default -> BoardState.IN_PROGRESS;
-        };
+        gameManager.playMove(player, row, col, new InteractionOutput(event));
     }
 }
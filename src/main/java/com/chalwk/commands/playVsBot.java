@@ -0,0 +1,92 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.commands;
+
+import com.chalwk.CommandManager.CommandCooldownManager;
+import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.bot.InteractionOutput;
+import com.chalwk.engine.Difficulty;
+import com.chalwk.game.GameManager;
+import com.chalwk.util.settings;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class playVsBot implements CommandInterface {
+
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
+    private final GameManager gameManager;
+
+    public playVsBot(GameManager gameManager) {
+        this.gameManager = gameManager;
+    }
+
+    @Override
+    public String getName() {
+        return "play-vs-bot";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Start a game against the computer";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+
+        List<OptionData> options = new ArrayList<>();
+        OptionData size = new OptionData(OptionType.INTEGER, "size", "The size of the game board", true);
+
+        size.addChoice("3x3", 3);
+        size.addChoice("4x4", 4);
+        size.addChoice("5x5", 5);
+        size.addChoice("6x6", 6);
+        size.addChoice("7x7", 7);
+        size.addChoice("8x8", 8);
+        size.addChoice("9x9", 9);
+
+        OptionData difficulty = new OptionData(OptionType.STRING, "difficulty", "How strong the computer plays (default: Normal)", false);
+        for (Difficulty level : Difficulty.values()) {
+            difficulty.addChoice(level.getLabel(), level.name());
+        }
+
+        OptionData winLength = new OptionData(OptionType.INTEGER, "win-length", "Marks in a row needed to win (default: the board size)", false);
+        for (int length = 3; length <= 9; length++) {
+            winLength.addChoice(length + " in a row", length);
+        }
+
+        options.add(size);
+        options.add(difficulty);
+        options.add(winLength);
+        return options;
+    }
+
+    @Override
+    public void execute(SlashCommandInteractionEvent event) {
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
+
+        if (settings.notCorrectChannel(event)) return;
+
+        int size = event.getOption("size").getAsInt();
+        OptionMapping difficultyOption = event.getOption("difficulty");
+        Difficulty difficulty = difficultyOption == null ? Difficulty.NORMAL : Difficulty.valueOf(difficultyOption.getAsString());
+        OptionMapping winLengthOption = event.getOption("win-length");
+        int winLength = winLengthOption == null ? size : winLengthOption.getAsInt();
+        if (winLength > size) {
+            event.reply("## The win length can't be larger than the board size.").setEphemeral(true).queue();
+            return;
+        }
+
+        long player = event.getUser().getIdLong();
+        long bot = event.getJDA().getSelfUser().getIdLong();
+
+        if (!gameManager.createGame(player, bot, event.getGuild().getIdLong(), new InteractionOutput(event), size, winLength, difficulty)) {
+            event.reply("## You are already in a game.").setEphemeral(true).queue();
+            return;
+        }
+    }
+}
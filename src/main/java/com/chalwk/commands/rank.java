@@ -0,0 +1,69 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.commands;
+
+import com.chalwk.CommandManager.CommandCooldownManager;
+import com.chalwk.CommandManager.CommandInterface;
+import com.chalwk.game.Game;
+import com.chalwk.game.GameManager;
+import com.chalwk.game.Ratings;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class rank implements CommandInterface {
+
+    private static final CommandCooldownManager COOLDOWN_MANAGER = CommandCooldownManager.getInstance();
+
+    private final GameManager gameManager;
+
+    public rank(GameManager gameManager) {
+        this.gameManager = gameManager;
+    }
+
+    @Override
+    public String getName() {
+        return "rank";
+    }
+
+    @Override
+    public String getDescription() {
+        return "Show a player's rating and rank";
+    }
+
+    @Override
+    public List<OptionData> getOptions() {
+        List<OptionData> options = new ArrayList<>();
+        options.add(new OptionData(OptionType.USER, "player", "The player to look up (default: you)", false));
+        return options;
+    }
+
+    @Override
+    public void execute(SlashCommandInteractionEvent event) {
+        if (!COOLDOWN_MANAGER.tryUse(event)) return;
+
+        OptionMapping playerOption = event.getOption("player");
+        long player = playerOption == null ? event.getUser().getIdLong() : playerOption.getAsUser().getIdLong();
+
+        Ratings ratings = gameManager.getRatings();
+        Ratings.Standing standing = ratings.getStanding(player);
+        if (standing == null) {
+            event.reply(Game.mention(player) + " has not played a rated game yet. Everyone starts at "
+                    + Ratings.INITIAL_RATING + ".").setEphemeral(true).queue();
+        } else {
+            // An embed, so looking someone up does not ping them.
+            event.replyEmbeds(new EmbedBuilder()
+                    .setDescription(Game.mention(player) + " is ranked **#" + standing.rank() + "** of " + ratings.size()
+                            + " with a rating of **" + standing.rating() + "** (" + standing.wins() + "W "
+                            + standing.losses() + "L " + standing.draws() + "D)")
+                    .setColor(Color.ORANGE)
+                    .build()).queue();
+        }
+    }
+}
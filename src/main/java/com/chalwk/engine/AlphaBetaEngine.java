@@ -0,0 +1,269 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+import com.chalwk.game.Board;
+
+/**
+ * Negamax search with alpha-beta pruning, a shared transposition table, move ordering (transposition move, history
+ * heuristic, then centre distance) and iterative deepening under a time budget.
+ * <p>
+ * Small boards are searched to the end, so play on 3x3 is perfect. On larger boards the deepest completed iteration is
+ * used when the budget runs out, with positions past the horizon scored by counting open lines.
+ * An engine instance holds no search state and can be shared between threads.
+ */
+public class AlphaBetaEngine implements Engine {
+
+    static final int WIN = 1_000_000;
+    private static final int INFINITY = WIN + 1;
+
+    /**
+     * Scores within this distance of {@link #WIN} are forced wins or losses, measured in plies.
+     */
+    private static final int MATE_RANGE = 1000;
+
+    private static final TranspositionTable TABLE = new TranspositionTable(1 << 18);
+
+    private final int maxDepth;
+
+    /**
+     * @param maxDepth the deepest iteration to search, in plies; use {@link Integer#MAX_VALUE} for no limit
+     */
+    public AlphaBetaEngine(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    @Override
+    public SearchResult search(Board board, int player, long timeBudgetMillis) {
+        return new Search(board, player, timeBudgetMillis).run();
+    }
+
+    /**
+     * The state of one search. All buffers are allocated up front; the recursion allocates nothing.
+     */
+    private final class Search {
+
+        private final Board board;
+        private final int size;
+        private final int player;
+        private final long startTime;
+        private final long deadline;
+        private final int[][] moves;
+        private final int[][] moveScores;
+        private final int[] history;
+        private final int[] weights;
+        private long hash;
+        private long nodes;
+        private boolean aborted;
+
+        private Search(Board board, int player, long timeBudgetMillis) {
+            this.board = new Board(board);
+            this.size = board.getROWS();
+            this.player = player;
+            this.startTime = System.nanoTime();
+            this.deadline = startTime + timeBudgetMillis * 1_000_000L;
+
+            int cells = size * size;
+            this.moves = new int[cells + 1][cells];
+            this.moveScores = new int[cells + 1][cells];
+            this.history = new int[cells];
+
+            // Line weights grow by 4x per mark, so one near-complete line outweighs several weak ones.
+            int winLength = board.getWinLength();
+            this.weights = new int[winLength + 1];
+            for (int marks = 1; marks <= winLength; marks++) {
+                weights[marks] = 1 << Math.min(2 * marks, 24);
+            }
+        }
+
+        private SearchResult run() {
+            hash = Zobrist.hash(board);
+            int[] root = moves[0];
+            int count = generateMoves(0, -1);
+            if (count == 0) {
+                throw new IllegalStateException("No legal moves");
+            }
+
+            int bestMove = root[0];
+            int bestScore = 0;
+            int completedDepth = 0;
+            int depthLimit = Math.min(maxDepth, count);
+
+            for (int depth = 1; depth <= depthLimit; depth++) {
+                int best = -INFINITY;
+                int bestIndex = 0;
+                int alpha = -INFINITY;
+
+                for (int i = 0; i < count; i++) {
+                    int score = scoreMove(root[i], player, depth, alpha, INFINITY, 0);
+                    if (aborted) break;
+                    if (score > best) {
+                        best = score;
+                        bestIndex = i;
+                    }
+                    alpha = Math.max(alpha, score);
+                }
+                if (aborted) break;
+
+                // Search the best move first in the next iteration.
+                int move = root[bestIndex];
+                System.arraycopy(root, 0, root, 1, bestIndex);
+                root[0] = move;
+
+                bestMove = move;
+                bestScore = best;
+                completedDepth = depth;
+                if (Math.abs(best) >= WIN - MATE_RANGE) break; // the outcome is decided
+            }
+
+            return new SearchResult(bestMove / size, bestMove % size, bestScore, completedDepth, nodes,
+                    System.nanoTime() - startTime);
+        }
+
+        /**
+         * Plays a move, scores the resulting position for the mover and takes the move back.
+         */
+        private int scoreMove(int cell, int mover, int depth, int alpha, int beta, int ply) {
+            int row = cell / size;
+            int col = cell % size;
+            board.makeMove(row, col, mover);
+            hash ^= Zobrist.cell(mover, cell);
+
+            int score;
+            int winner = board.checkWinner();
+            if (winner == mover) {
+                score = WIN - ply - 1;
+            } else if (winner == 0) {
+                score = 0;
+            } else if (depth <= 1) {
+                score = evaluate(mover);
+            } else {
+                score = -negamax(depth - 1, -beta, -alpha, 3 - mover, ply + 1);
+            }
+
+            board.undoMove(row, col);
+            hash ^= Zobrist.cell(mover, cell);
+            return score;
+        }
+
+        private int negamax(int depth, int alpha, int beta, int mover, int ply) {
+            if ((++nodes & 1023) == 0 && System.nanoTime() >= deadline) {
+                aborted = true;
+            }
+            if (aborted) return 0;
+
+            long key = mover == 2 ? hash ^ Zobrist.SIDE_TO_MOVE : hash;
+            long entry = TABLE.probe(key);
+            int tableMove = -1;
+            if (entry != TranspositionTable.MISS) {
+                tableMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int flag = TranspositionTable.flag(entry);
+                    if (flag == TranspositionTable.EXACT) return score;
+                    if (flag == TranspositionTable.LOWER) alpha = Math.max(alpha, score);
+                    else beta = Math.min(beta, score);
+                    if (alpha >= beta) return score;
+                }
+            }
+
+            int originalAlpha = alpha;
+            int[] list = moves[ply];
+            int count = generateMoves(ply, tableMove);
+            int best = -INFINITY;
+            int bestMove = list[0];
+
+            for (int i = 0; i < count; i++) {
+                int cell = list[i];
+                int score = scoreMove(cell, mover, depth, alpha, beta, ply);
+                if (aborted) return 0;
+
+                if (score > best) {
+                    best = score;
+                    bestMove = cell;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                }
+                if (alpha >= beta) {
+                    history[cell] += depth * depth;
+                    break;
+                }
+            }
+
+            int flag = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER
+                    : TranspositionTable.EXACT;
+            TABLE.store(key, depth, flag, toTable(best, ply), bestMove);
+            return best;
+        }
+
+        /**
+         * Fills {@code moves[ply]} with the empty cells, best candidates first.
+         *
+         * @return the number of moves
+         */
+        private int generateMoves(int ply, int tableMove) {
+            int[] list = moves[ply];
+            int[] scores = moveScores[ply];
+            int count = 0;
+            int centre = size - 1; // doubled centre coordinate, avoids halves on even boards
+
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    if (board.getCell(row, col) != 0) continue;
+                    int cell = row * size + col;
+                    int score = cell == tableMove ? Integer.MAX_VALUE
+                            : history[cell] * 64 - Math.abs(2 * row - centre) - Math.abs(2 * col - centre);
+
+                    // Insertion sort: boards have at most 81 cells.
+                    int i = count++;
+                    while (i > 0 && scores[i - 1] < score) {
+                        list[i] = list[i - 1];
+                        scores[i] = scores[i - 1];
+                        i--;
+                    }
+                    list[i] = cell;
+                    scores[i] = score;
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Scores a position for the player who just moved by counting lines only one side can still complete.
+         * The opponent moves next, so their lines weigh a little more.
+         */
+        private int evaluate(int mover) {
+            int opponent = 3 - mover;
+            int score = 0;
+            for (int line = 0; line < board.getLineCount(); line++) {
+                int mine = board.countLine(line, mover);
+                int theirs = board.countLine(line, opponent);
+                if (theirs == 0) {
+                    score += 2 * weights[mine];
+                } else if (mine == 0) {
+                    score -= 3 * weights[theirs];
+                }
+            }
+            return Math.max(-WIN + MATE_RANGE, Math.min(WIN - MATE_RANGE, score));
+        }
+    }
+
+    /**
+     * Forced-win scores are stored relative to the node rather than the root, so they stay correct when the same
+     * position is reached at a different ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN - MATE_RANGE) return score + ply;
+        if (score <= -WIN + MATE_RANGE) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN - MATE_RANGE) return score - ply;
+        if (score <= -WIN + MATE_RANGE) return score + ply;
+        return score;
+    }
+}
@@ -0,0 +1,80 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+/**
+ * The strength settings of the computer opponent. Each level caps the search depth and the time spent per move; the
+ * budgets stay well under the three seconds Discord allows for answering the command that triggered the move.
+ * <p>
+ * Small boards are searched with {@link AlphaBetaEngine}. From {@link #MCTS_MIN_SIZE} up the tree is too wide for it,
+ * so {@link MctsEngine} is used instead, and a harder level simply gets more workers.
+ */
+public enum Difficulty {
+
+    EASY(1, "Easy", 1, 100, 1),
+    NORMAL(2, "Normal", 3, 400, Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+    HARD(3, "Hard", Integer.MAX_VALUE, 1000, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The smallest board size played with Monte Carlo Tree Search.
+     */
+    public static final int MCTS_MIN_SIZE = 5;
+
+    private final int id;
+    private final String label;
+    private final long timeBudgetMillis;
+    private final Engine searchEngine;
+    private final Engine mctsEngine;
+
+    Difficulty(int id, String label, int maxDepth, long timeBudgetMillis, int workers) {
+        this.id = id;
+        this.label = label;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.searchEngine = new AlphaBetaEngine(maxDepth);
+        this.mctsEngine = new MctsEngine(workers);
+    }
+
+    /**
+     * Looks up a difficulty by its stable ID.
+     *
+     * @param id the ID returned by {@link #getId()}
+     * @return the difficulty, or null if the ID is unknown
+     */
+    public static Difficulty byId(int id) {
+        for (Difficulty difficulty : values()) {
+            if (difficulty.id == id) {
+                return difficulty;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the ID used to persist this difficulty. Unlike the ordinal it never changes.
+     *
+     * @return the ID, never 0
+     */
+    public int getId() {
+        return id;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getTimeBudgetMillis() {
+        return timeBudgetMillis;
+    }
+
+    /**
+     * Gets the engine that plays at this difficulty on the given board size. Engines are stateless and shared by all
+     * games.
+     *
+     * @param boardSize the number of rows of the board
+     * @return the engine
+     */
+    public Engine getEngine(int boardSize) {
+        return boardSize >= MCTS_MIN_SIZE ? mctsEngine : searchEngine;
+    }
+}
@@ -0,0 +1,22 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+import com.chalwk.game.Board;
+
+/**
+ * A computer player that picks a move for a position within a time budget.
+ */
+public interface Engine {
+
+    /**
+     * Searches for the best move for the given player. The board is not modified.
+     *
+     * @param board            the position to search; must have at least one empty cell and no winner
+     * @param player           the player to move, 1 or 2
+     * @param timeBudgetMillis the wall-clock time the search may use
+     * @return the chosen move and search statistics
+     */
+    SearchResult search(Board board, int player, long timeBudgetMillis);
+}
@@ -0,0 +1,245 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+import com.chalwk.game.Board;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Monte Carlo Tree Search for boards too large to search exhaustively.
+ * <p>
+ * Several workers grow one shared tree at the same time (tree parallelism). A worker descending through a node adds a
+ * virtual loss to it, which steers the other workers towards different branches until the playout result is backed
+ * up. Node statistics are updated with atomic field updaters, so workers never lock. Each worker plays out on its own
+ * scratch board and move buffer, so the playouts themselves allocate nothing; only expanding a node does.
+ * The search is anytime: it stops when the time budget runs out and plays the most visited move.
+ */
+public class MctsEngine implements Engine {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Exploration constant of the UCT formula; {@code sqrt(2)} is the textbook value for results in [0, 1].
+     */
+    private static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * A leaf is expanded once it has been visited this often, which keeps the tree small on large boards.
+     */
+    private static final int EXPAND_VISITS = 2;
+
+    private final int parallelism;
+
+    /**
+     * @param parallelism the number of workers that search at the same time; more workers mean more playouts within
+     *                    the same time budget
+     */
+    public MctsEngine(int parallelism) {
+        this.parallelism = Math.max(1, Math.min(parallelism, POOL.getParallelism()));
+    }
+
+    @Override
+    public SearchResult search(Board board, int player, long timeBudgetMillis) {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+        int size = board.getROWS();
+        Board position = new Board(board); // workers only read it, but the game board must not change under them
+
+        Node root = new Node(null, -1, 3 - player);
+        List<ForkJoinTask<Worker>> tasks = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            Worker worker = new Worker(position, root, deadline);
+            tasks.add(POOL.submit(worker, worker));
+        }
+
+        long playouts = 0;
+        int depth = 0;
+        for (ForkJoinTask<Worker> task : tasks) {
+            Worker worker = task.join();
+            playouts += worker.playouts;
+            depth = Math.max(depth, worker.maxDepth);
+        }
+
+        Node best = root.mostVisitedChild();
+        if (best == null) {
+            throw new IllegalStateException("No legal moves");
+        }
+        int winRate = best.visits == 0 ? 0 : (int) (best.halfWins * 500L / best.visits); // per mille
+        return new SearchResult(best.move / size, best.move % size, winRate, depth, playouts, System.nanoTime() - start);
+    }
+
+    /**
+     * A position in the search tree, reached by {@link #move} from its parent.
+     */
+    private static final class Node {
+
+        private static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        private static final AtomicIntegerFieldUpdater<Node> HALF_WINS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "halfWins");
+        private static final AtomicIntegerFieldUpdater<Node> VIRTUAL_LOSS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "virtualLoss");
+        private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+        private final Node parent;
+        private final int move;
+        private final int mover; // the player who played move
+
+        private volatile int visits;
+        private volatile int halfWins; // a win counts 2, a draw 1, so results stay integral
+        private volatile int virtualLoss;
+        private volatile Node[] children;
+
+        private Node(Node parent, int move, int mover) {
+            this.parent = parent;
+            this.move = move;
+            this.mover = mover;
+        }
+
+        /**
+         * Picks the child with the best UCT value. Workers still playing out through a child count as losses for it.
+         */
+        private Node select(Node[] nodes) {
+            double logVisits = Math.log(Math.max(1, visits + virtualLoss));
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : nodes) {
+                int n = child.visits + child.virtualLoss;
+                if (n == 0) {
+                    return child;
+                }
+                double value = child.halfWins / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Creates the children for the given empty cells. If another worker expanded the node first, its children win.
+         */
+        private Node[] expand(int[] cells, int count) {
+            Node[] created = new Node[count];
+            int next = 3 - mover;
+            for (int i = 0; i < count; i++) {
+                created[i] = new Node(this, cells[i], next);
+            }
+            return CHILDREN.compareAndSet(this, null, created) ? created : children;
+        }
+
+        private Node mostVisitedChild() {
+            Node[] nodes = children;
+            Node best = null;
+            if (nodes != null) {
+                for (Node child : nodes) {
+                    if (best == null || child.visits > best.visits) {
+                        best = child;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Runs select, expand, playout and backup cycles until the deadline.
+     */
+    private static final class Worker implements Runnable {
+
+        private final Board rootBoard;
+        private final Board board;
+        private final Node root;
+        private final long deadline;
+        private final int size;
+        private final int[] cells;
+        private long playouts;
+        private int maxDepth;
+
+        private Worker(Board rootBoard, Node root, long deadline) {
+            this.rootBoard = rootBoard;
+            this.board = new Board(rootBoard);
+            this.root = root;
+            this.deadline = deadline;
+            this.size = rootBoard.getROWS();
+            this.cells = new int[size * size];
+        }
+
+        @Override
+        public void run() {
+            // Always complete at least one playout so the root has a child to return.
+            do {
+                board.copyFrom(rootBoard);
+                Node leaf = descend();
+                backup(leaf, playout(leaf));
+                playouts++;
+            } while (System.nanoTime() < deadline);
+        }
+
+        /**
+         * Walks down the tree, playing each chosen move on the scratch board, and expands the leaf it ends on.
+         */
+        private Node descend() {
+            Node node = root;
+            int depth = 0;
+            while (board.checkWinner() == -1) {
+                Node[] children = node.children;
+                if (children == null) {
+                    if (node != root && node.visits < EXPAND_VISITS) break;
+                    children = node.expand(cells, board.getEmptyCells(cells));
+                }
+                node = node.select(children);
+                Node.VIRTUAL_LOSS.incrementAndGet(node);
+                board.makeMove(node.move / size, node.move % size, node.mover);
+                depth++;
+            }
+            if (depth > maxDepth) maxDepth = depth;
+            return node;
+        }
+
+        /**
+         * Plays random moves from the leaf until the game ends.
+         *
+         * @return the winner, or 0 for a draw
+         */
+        private int playout(Node leaf) {
+            int count = board.getEmptyCells(cells);
+            int player = 3 - leaf.mover;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (board.checkWinner() == -1) {
+                int pick = random.nextInt(count);
+                int cell = cells[pick];
+                cells[pick] = cells[--count];
+                board.makeMove(cell / size, cell % size, player);
+                player = 3 - player;
+            }
+            return board.checkWinner();
+        }
+
+        /**
+         * Adds the result to every node on the path and removes the virtual losses added on the way down.
+         */
+        private void backup(Node leaf, int winner) {
+            for (Node node = leaf; node != null; node = node.parent) {
+                if (node != root) {
+                    Node.VIRTUAL_LOSS.decrementAndGet(node);
+                }
+                Node.VISITS.incrementAndGet(node);
+                int result = winner == 0 ? 1 : winner == node.mover ? 2 : 0;
+                if (result != 0) {
+                    Node.HALF_WINS.addAndGet(node, result);
+                }
+            }
+        }
+    }
+}
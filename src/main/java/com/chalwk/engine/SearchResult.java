@@ -0,0 +1,80 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+/**
+ * The move chosen by an {@link Engine} along with how much work it took to find it.
+ */
+public class SearchResult {
+
+    private final int row;
+    private final int col;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    public SearchResult(int row, int col, int score, int depth, long nodes, long elapsedNanos) {
+        this.row = row;
+        this.col = col;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Gets the score of the chosen move from the point of view of the player that moves.
+     *
+     * @return the score; its scale depends on the engine
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the deepest search iteration that completed.
+     *
+     * @return the completed depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Gets the number of positions (or playouts) the engine examined.
+     *
+     * @return the node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Gets the search speed, useful to size hardware for bot games.
+     *
+     * @return the number of nodes per second
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "move=" + row + "," + col + " score=" + score + " depth=" + depth + " nodes=" + nodes
+                + " time=" + elapsedNanos / 1_000_000 + "ms nps=" + getNodesPerSecond();
+    }
+}
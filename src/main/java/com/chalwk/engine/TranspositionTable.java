@@ -0,0 +1,63 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+/**
+ * A fixed-size, always-replace transposition table shared by every search.
+ * Each entry is one packed {@code long}; the stored key is XORed with the data, so an entry torn by two threads
+ * writing at once fails verification and reads as a miss. No locks are needed and nothing is allocated per probe.
+ */
+final class TranspositionTable {
+
+    static final int EXACT = 1;
+    static final int LOWER = 2;
+    static final int UPPER = 3;
+
+    /**
+     * Returned by {@link #probe} when there is no entry; real entries always have a non-zero flag.
+     */
+    static final long MISS = 0;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    TranspositionTable(int sizePowerOfTwo) {
+        this.keys = new long[sizePowerOfTwo];
+        this.data = new long[sizePowerOfTwo];
+        this.mask = sizePowerOfTwo - 1;
+    }
+
+    long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : MISS;
+    }
+
+    void store(long key, int depth, int flag, int score, int move) {
+        int index = (int) key & mask;
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) (depth & 0xFF) << 32
+                | (long) flag << 40
+                | (long) (move + 1) << 42;
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    static int score(long entry) {
+        return (int) entry;
+    }
+
+    static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    static int flag(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    static int move(long entry) {
+        return (int) (entry >>> 42) - 1;
+    }
+}
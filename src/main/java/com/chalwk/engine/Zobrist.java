@@ -0,0 +1,58 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.engine;
+
+import com.chalwk.game.Board;
+
+import java.util.SplittableRandom;
+
+/**
+ * Fixed random keys for Zobrist hashing of board positions. A position's hash is the XOR of the keys of its occupied
+ * cells, its board size and win length, and the side to move, so it can be updated with one XOR per move.
+ */
+final class Zobrist {
+
+    private static final int CELLS = Board.MAX_SIZE * Board.MAX_SIZE;
+    private static final long[][] CELL_KEYS = new long[2][CELLS];
+    private static final long[][] RULE_KEYS = new long[Board.MAX_SIZE + 1][Board.MAX_SIZE + 1];
+    static final long SIDE_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_7AC7_0E5L);
+        for (int cell = 0; cell < CELLS; cell++) {
+            CELL_KEYS[0][cell] = random.nextLong();
+            CELL_KEYS[1][cell] = random.nextLong();
+        }
+        for (long[] keys : RULE_KEYS) {
+            for (int winLength = 0; winLength < keys.length; winLength++) {
+                keys[winLength] = random.nextLong();
+            }
+        }
+        SIDE_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long cell(int player, int cell) {
+        return CELL_KEYS[player - 1][cell];
+    }
+
+    /**
+     * Computes the hash of a board from scratch.
+     */
+    static long hash(Board board) {
+        int size = board.getROWS();
+        long hash = RULE_KEYS[size][board.getWinLength()];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int player = board.getCell(row, col);
+                if (player != 0) {
+                    hash ^= cell(player, row * size + col);
+                }
+            }
+        }
+        return hash;
+    }
+}
@@ -3,22 +3,83 @@
 
 package com.chalwk.game;
 
+/**
+ * A square tic-tac-toe board stored as one bitboard per player. See {@link BoardMasks} for the cell layout.
+ * A player wins with {@code winLength} marks in a row, column or diagonal; by default that is a full line.
+ */
 public class Board {
 
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 9;
+
     private final int rows;
     private final int cols;
-    private final int[][] board;
+    private final int winLength;
+    private final BoardMasks masks;
+    private final BoardTemplate template;
+
+    /**
+     * The rendered board, created on the first {@link #printBoard()} and kept in step by every move after that.
+     * Boards used only for searching never render and never allocate it.
+     */
+    private char[] view;
+
+    // Cells owned by player 1 (X) and player 2 (O), split into low and high words.
+    private long xLo, xHi;
+    private long oLo, oHi;
+
+    private int winner = -1;
+
+    // Cells of the completed line once the game is won, for highlighting.
+    private long winLo, winHi;
 
     public Board(int size) {
-        this.board = new int[size][size];
+        this(size, size);
+    }
+
+    /**
+     * Creates an empty board with a k-in-a-row win rule.
+     *
+     * @param size      the number of rows and columns
+     * @param winLength the number of marks in a row needed to win, from {@link #MIN_SIZE} up to the size
+     * @throws IllegalArgumentException if the size or win length is not supported
+     */
+    public Board(int size, int winLength) {
+        this.masks = BoardMasks.forRules(size, winLength);
+        this.template = BoardTemplate.forSize(size);
         this.rows = size;
         this.cols = size;
+        this.winLength = winLength;
+    }
 
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                board[row][col] = 0;
-            }
-        }
+    /**
+     * Creates a copy of another board, for example so a search can play on it without touching the game.
+     *
+     * @param other the board to copy
+     */
+    public Board(Board other) {
+        this.masks = other.masks;
+        this.template = other.template;
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.winLength = other.winLength;
+        copyFrom(other);
+    }
+
+    /**
+     * Overwrites this board with the cells and outcome of another board of the same size.
+     *
+     * @param other the board to copy from
+     */
+    public void copyFrom(Board other) {
+        this.xLo = other.xLo;
+        this.xHi = other.xHi;
+        this.oLo = other.oLo;
+        this.oHi = other.oHi;
+        this.winner = other.winner;
+        this.winLo = other.winLo;
+        this.winHi = other.winHi;
+        this.view = null;
     }
 
     public int makeMove(int row, int col, int player) {
@@ -26,149 +87,243 @@ public class Board {
             return 0; // invalid move
         }
 
-        if (board[row][col] == 0) {
-            board[row][col] = player;
-        } else {
+        int cell = row * cols + col;
+        long bit = 1L << cell; // shift distance is taken mod 64, so this is also the high-word bit
+        boolean high = cell >= 64;
+
+        if (((high ? xHi | oHi : xLo | oLo) & bit) != 0) {
             return 1; // cell already occupied
         }
 
+        if (player == 1) {
+            if (high) xHi |= bit;
+            else xLo |= bit;
+        } else {
+            if (high) oHi |= bit;
+            else oLo |= bit;
+        }
+
+        if (view != null) {
+            view[template.glyphOffsets[cell]] = BoardTemplate.glyph(player);
+        }
+        updateWinner(cell, player);
         return 2; // move successful
     }
 
-    public int checkWinner() {
-        // Check rows
-        for (int row = 0; row < rows; row++) {
-            if (checkRow(row)) {
-                return board[row][0]; // Player 1 or 2 wins
-            }
+    /**
+     * Takes back a move. Only the most recent moves may be undone, in reverse order; since no move can follow a finished
+     * game, the board is always back in progress afterwards.
+     *
+     * @param row the row of the move
+     * @param col the column of the move
+     */
+    public void undoMove(int row, int col) {
+        int cell = row * cols + col;
+        long bit = ~(1L << cell);
+        if (cell >= 64) {
+            xHi &= bit;
+            oHi &= bit;
+        } else {
+            xLo &= bit;
+            oLo &= bit;
         }
-        // Check columns
-        for (int col = 0; col < cols; col++) {
-            if (checkColumn(col)) {
-                return board[0][col]; // Player 1 or 2 wins
-            }
+        if (view != null) {
+            view[template.glyphOffsets[cell]] = ' ';
         }
-        // Check diagonals
-        if (checkDiagonal(true)) {
-            return board[0][0]; // Player 1 or 2 wins
+        winner = -1;
+        winLo = 0;
+        winHi = 0;
+    }
+
+    /**
+     * Works out the outcome from the cell that was just played. Only a run through the last move can have been
+     * completed by it, so the player's marks are counted outwards from that cell in the four directions, stopping
+     * after {@code winLength} cells: O(k) per move whatever the board size.
+     */
+    private void updateWinner(int cell, int player) {
+        long lo = player == 1 ? xLo : oLo;
+        long hi = player == 1 ? xHi : oHi;
+        int row = cell / cols;
+        int col = cell % cols;
+
+        if (runLength(lo, hi, row, col, 0, 1) >= winLength
+                || runLength(lo, hi, row, col, 1, 0) >= winLength
+                || runLength(lo, hi, row, col, 1, 1) >= winLength
+                || runLength(lo, hi, row, col, 1, -1) >= winLength) {
+            winner = player;
+            markWinningRun(lo, hi, row, col);
+            return;
         }
-        if (checkDiagonal(false)) {
-            return board[0][cols - 1]; // Player 1 or 2 wins
+
+        if (winner == -1 && (xLo | oLo) == masks.fullLo && (xHi | oHi) == masks.fullHi) {
+            winner = 0;
+        }
+    }
+
+    /**
+     * Counts the marks in an unbroken run through (row, col) along one direction, in both senses, up to the win length.
+     */
+    private int runLength(long lo, long hi, int row, int col, int rowStep, int colStep) {
+        int count = 1;
+        for (int r = row + rowStep, c = col + colStep; count < winLength && owns(lo, hi, r, c); r += rowStep, c += colStep) {
+            count++;
         }
-        // Check if the board is full
-        if (isBoardFull()) {
-            return 0; // Tie
+        for (int r = row - rowStep, c = col - colStep; count < winLength && owns(lo, hi, r, c); r -= rowStep, c -= colStep) {
+            count++;
         }
-        return -1; // Game still in progress
+        return count;
     }
 
-    private boolean checkRow(int row) {
-        int check = board[row][0];
-        if (check != 0) {
-            for (int col = 1; col < cols; col++) {
-                if (board[row][col] != check) {
-                    return false;
-                }
+    /**
+     * Records every cell of the completed run through (row, col). Runs once per game, so it simply re-walks the lines.
+     */
+    private void markWinningRun(long lo, long hi, int row, int col) {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        for (int[] direction : directions) {
+            int rowStep = direction[0];
+            int colStep = direction[1];
+            if (runLength(lo, hi, row, col, rowStep, colStep) < winLength) continue;
+
+            int r = row;
+            int c = col;
+            while (owns(lo, hi, r - rowStep, c - colStep)) {
+                r -= rowStep;
+                c -= colStep;
+            }
+            for (; owns(lo, hi, r, c); r += rowStep, c += colStep) {
+                int cell = r * cols + c;
+                if (cell >= 64) winHi |= 1L << cell;
+                else winLo |= 1L << cell;
             }
-            return true;
         }
-        return false;
     }
 
-    private boolean checkColumn(int col) {
-        int check = board[0][col];
-        if (check != 0) {
-            for (int row = 1; row < rows; row++) {
-                if (board[row][col] != check) {
-                    return false;
-                }
-            }
-            return true;
+    private boolean owns(long lo, long hi, int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            return false;
         }
-        return false;
+        int cell = row * cols + col;
+        return ((cell >= 64 ? hi : lo) & 1L << cell) != 0;
     }
 
-    private boolean checkDiagonal(boolean forward) {
-        if (forward) {
-            int check = board[0][0];
-            for (int i = 1; i < Math.min(rows, cols); i++) {
-                if (board[i][i] != check) {
-                    return false;
-                }
-            }
-        } else {
-            int check = board[0][cols - 1];
-            for (int i = 1; i < Math.min(rows, cols); i++) {
-                if (board[i][cols - i - 1] != check) {
-                    return false;
-                }
-            }
+    /**
+     * Returns the outcome of the game, kept up to date by {@link #makeMove(int, int, int)}.
+     *
+     * @return 1 or 2 if that player has won, 0 for a draw, -1 if the game is still in progress
+     */
+    public int checkWinner() {
+        return winner;
+    }
+
+    /**
+     * Returns the player occupying the given cell.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return 1 or 2 for the owning player, 0 if the cell is empty
+     */
+    public int getCell(int row, int col) {
+        int cell = row * cols + col;
+        long bit = 1L << cell;
+        if (cell >= 64) {
+            return (xHi & bit) != 0 ? 1 : (oHi & bit) != 0 ? 2 : 0;
         }
-        return true;
+        return (xLo & bit) != 0 ? 1 : (oLo & bit) != 0 ? 2 : 0;
     }
 
-    private boolean isBoardFull() {
-        for (int row = 0; row < rows; row++) {
-            for (int col = 0; col < cols; col++) {
-                if (board[row][col] == 0) {
-                    return false;
-                }
-            }
+    /**
+     * Checks if a cell is part of the line that won the game.
+     *
+     * @param row the row of the cell
+     * @param col the column of the cell
+     * @return true if the game is won and the cell is on a winning line
+     */
+    public boolean isWinningCell(int row, int col) {
+        int cell = row * cols + col;
+        return ((cell >= 64 ? winHi : winLo) & 1L << cell) != 0;
+    }
+
+    /**
+     * Identifies everything an image of this board shows. Equal keys render identical images.
+     */
+    ImageKey imageKey() {
+        return new ImageKey(rows, xLo, xHi, oLo, oHi, winLo, winHi);
+    }
+
+    record ImageKey(int size, long xLo, long xHi, long oLo, long oHi, long winLo, long winHi) {
+    }
+
+    /**
+     * Writes the index ({@code row * size + col}) of every empty cell into the given array, without allocating.
+     *
+     * @param cells receives the empty cells; must hold at least {@code size * size} entries
+     * @return the number of empty cells written
+     */
+    public int getEmptyCells(int[] cells) {
+        int count = 0;
+        long free = ~(xLo | oLo) & masks.fullLo;
+        while (free != 0) {
+            cells[count++] = Long.numberOfTrailingZeros(free);
+            free &= free - 1;
+        }
+        free = ~(xHi | oHi) & masks.fullHi;
+        while (free != 0) {
+            cells[count++] = 64 + Long.numberOfTrailingZeros(free);
+            free &= free - 1;
         }
-        return true;
+        return count;
+    }
+
+    /**
+     * Returns the number of windows a player can win with on this board.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return masks.lineLo.length;
+    }
+
+    /**
+     * Counts a player's marks in one winning window.
+     *
+     * @param line   the line index, below {@link #getLineCount()}
+     * @param player the player, 1 or 2
+     * @return the number of cells of the line the player occupies
+     */
+    public int countLine(int line, int player) {
+        long lo = player == 1 ? xLo : oLo;
+        long hi = player == 1 ? xHi : oHi;
+        return Long.bitCount(lo & masks.lineLo[line]) + Long.bitCount(hi & masks.lineHi[line]);
+    }
+
+    /**
+     * Returns the number of marks in a row needed to win.
+     *
+     * @return the win length
+     */
+    public int getWinLength() {
+        return winLength;
     }
 
     public int getROWS() {
         return rows;
     }
 
+    /**
+     * Renders the board as text. The layout comes from a template shared by all boards of this size; the board keeps
+     * its own copy with the marks filled in, updated by each move, so rendering is a single {@code String} copy.
+     *
+     * @return the board text
+     */
     public String printBoard() {
-        StringBuilder sb = new StringBuilder();
-
-        int maxColNumberLength = ("" + cols).length();
-        int maxRowNumberLength = ("" + rows).length();
-
-        // Print column numbers
-        sb.append(System.lineSeparator());
-        for (int col = 0; col < cols; col++) {
-            if (col == 0) {
-                sb.append("    ").append(String.format("%" + maxColNumberLength + "d", col)).append("   "); // Added 4 spaces before the first column number
-            } else {
-                sb.append(String.format("%" + maxColNumberLength + "d", col)).append("   ");
+        char[] text = view;
+        if (text == null) {
+            text = template.copy();
+            for (int cell = 0; cell < rows * cols; cell++) {
+                text[template.glyphOffsets[cell]] = BoardTemplate.glyph(getCell(cell / cols, cell % cols));
             }
+            view = text;
         }
-        sb.append(System.lineSeparator());
-
-        // Print board
-        for (int row = 0; row < rows; row++) {
-
-            // Print row number
-            String rowStr = String.format("%" + maxRowNumberLength + "d", row);
-            sb.append(rowStr).append(" ");
-
-            // Print row content
-            for (int col = 0; col < cols; col++) {
-                sb.append("| ");
-                if (board[row][col] == 1) {
-                    sb.append("X");
-                } else if (board[row][col] == 2) {
-                    sb.append("O");
-                } else {
-                    sb.append(" ");
-                }
-                sb.append(" ");
-            }
-            sb.append("|").append(System.lineSeparator());
-
-            // Print separator
-            if (row < rows - 1) {
-                sb.append("  |");
-                sb.append("---+".repeat(Math.max(0, cols)));
-                sb.deleteCharAt(sb.length() - 1);
-                sb.append("|").append(System.lineSeparator());
-            }
-        }
-
-        return sb.toString();
+        return new String(text);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+import com.chalwk.util.Logging.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Renders boards as PNG images.
+ * <p>
+ * Every tile (empty, X, O, their winning-line variants and the coordinate labels) is drawn once into an atlas when the
+ * class loads, so composing a board is only a series of image copies. Encoding runs on a small bounded pool, never on
+ * the JDA event threads. Finished images are kept in an LRU cache keyed by the board contents, so an unchanged board
+ * (a refresh, or the same position in another game) is not drawn or encoded again.
+ */
+public class BoardImageRenderer {
+
+    /**
+     * The name the image is attached under; embeds refer to it as {@code attachment://board.png}.
+     */
+    public static final String FILE_NAME = "board.png";
+
+    private static final int TILE = 64;
+    private static final int MARGIN = 32;
+    private static final int CACHE_SIZE = 512;
+    private static final int QUEUE_SIZE = 64;
+
+    private static final Color BACKGROUND = new Color(0x2B2D31);
+    private static final Color CELL = new Color(0x383A40);
+    private static final Color WIN_CELL = new Color(0x3BA55C);
+    private static final Color GRID = new Color(0x1E1F22);
+    private static final Color X_COLOR = new Color(0xED4245);
+    private static final Color O_COLOR = new Color(0x5865F2);
+    private static final Color LABEL_COLOR = new Color(0xB5BAC1);
+
+    // Atlas layout: one row of cell tiles, then one row of MARGIN-sized labels.
+    private static final int EMPTY = 0, X = 1, O = 2, WIN_X = 3, WIN_O = 4;
+    private static final BufferedImage ATLAS = createAtlas();
+
+    private static final byte[] EMPTY_IMAGE = new byte[0]; // getNow placeholder for a render still running
+
+    private static final ThreadPoolExecutor POOL = createPool();
+    private static final Map<Board.ImageKey, CompletableFuture<byte[]>> CACHE =
+            new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Board.ImageKey, CompletableFuture<byte[]>> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    private BoardImageRenderer() {
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors()));
+        // A full queue rejects the render and the caller falls back to the text board.
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "board-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Draws every tile once. Returns null if Java2D is unusable here (for example no fonts are installed), in which
+     * case rendering always fails and games show the text board.
+     */
+    private static BufferedImage createAtlas() {
+        try {
+            BufferedImage atlas = new BufferedImage(TILE * 5, TILE + MARGIN, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = atlas.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, atlas.getWidth(), atlas.getHeight());
+
+            int inset = TILE / 5;
+            g.setStroke(new BasicStroke(TILE / 10f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            for (int tile = EMPTY; tile <= WIN_O; tile++) {
+                int x = tile * TILE;
+                g.setColor(GRID);
+                g.fillRect(x, 0, TILE, TILE);
+                g.setColor(tile >= WIN_X ? WIN_CELL : CELL);
+                g.fillRect(x + 2, 2, TILE - 4, TILE - 4);
+
+                if (tile == X || tile == WIN_X) {
+                    g.setColor(tile == X ? X_COLOR : Color.WHITE);
+                    g.drawLine(x + inset, inset, x + TILE - inset, TILE - inset);
+                    g.drawLine(x + TILE - inset, inset, x + inset, TILE - inset);
+                } else if (tile == O || tile == WIN_O) {
+                    g.setColor(tile == O ? O_COLOR : Color.WHITE);
+                    g.drawOval(x + inset, inset, TILE - 2 * inset, TILE - 2 * inset);
+                }
+            }
+
+            g.setColor(LABEL_COLOR);
+            g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, MARGIN / 2));
+            FontMetrics metrics = g.getFontMetrics();
+            for (int label = 0; label < Board.MAX_SIZE; label++) {
+                String text = String.valueOf(label);
+                int x = label * MARGIN + (MARGIN - metrics.stringWidth(text)) / 2;
+                int y = TILE + (MARGIN - metrics.getHeight()) / 2 + metrics.getAscent();
+                g.drawString(text, x, y);
+            }
+            g.dispose();
+            return atlas;
+        } catch (Throwable e) {
+            Logger.warning("Board images are disabled, falling back to text boards: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Renders a board to PNG in the background. The board is copied first, so the caller may keep playing on it.
+     * <p>
+     * The future returned is a copy of the one in the cache, so completing it early (with a timeout, say) only affects
+     * the caller and never the image other games get for the same board.
+     *
+     * @param board the board to render
+     * @return a future completed with the PNG bytes, or failed if the image could not be produced
+     */
+    public static CompletableFuture<byte[]> render(Board board) {
+        if (ATLAS == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Board images are disabled"));
+        }
+
+        Board snapshot = new Board(board);
+        Board.ImageKey key = snapshot.imageKey();
+        CompletableFuture<byte[]> image;
+        synchronized (CACHE) {
+            image = CACHE.get(key);
+            if (image != null && !image.isCompletedExceptionally() && image.getNow(EMPTY_IMAGE) != null) {
+                return image.copy();
+            }
+            image = new CompletableFuture<>();
+            CACHE.put(key, image);
+        }
+
+        CompletableFuture<byte[]> result = image;
+        try {
+            POOL.execute(() -> {
+                try {
+                    result.complete(encode(snapshot));
+                } catch (Throwable e) {
+                    fail(key, result, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fail(key, result, e);
+        }
+        return result.copy();
+    }
+
+    private static void fail(Board.ImageKey key, CompletableFuture<byte[]> image, Throwable error) {
+        synchronized (CACHE) {
+            CACHE.remove(key, image);
+        }
+        image.completeExceptionally(error);
+    }
+
+    private static byte[] encode(Board board) throws IOException {
+        int size = board.getROWS();
+        int pixels = MARGIN + size * TILE;
+        BufferedImage image = new BufferedImage(pixels, pixels, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, pixels, pixels);
+
+        int labelOffset = (TILE - MARGIN) / 2;
+        for (int i = 0; i < size; i++) {
+            int position = MARGIN + i * TILE + labelOffset;
+            copyTile(g, i * MARGIN, TILE, MARGIN, position, 0);  // column number
+            copyTile(g, i * MARGIN, TILE, MARGIN, 0, position);  // row number
+        }
+
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int player = board.getCell(row, col);
+                int tile = player == 0 ? EMPTY
+                        : board.isWinningCell(row, col) ? (player == 1 ? WIN_X : WIN_O)
+                        : player;
+                copyTile(g, tile * TILE, 0, TILE, MARGIN + col * TILE, MARGIN + row * TILE);
+            }
+        }
+        g.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static void copyTile(Graphics2D g, int sourceX, int sourceY, int tileSize, int x, int y) {
+        g.drawImage(ATLAS, x, y, x + tileSize, y + tileSize,
+                sourceX, sourceY, sourceX + tileSize, sourceY + tileSize, null);
+    }
+}
@@ -0,0 +1,99 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+/**
+ * Precomputed bit masks for one board size and win length. Cell (row, col) maps to bit {@code row * size + col};
+ * bits 0-63 live in the low word and bits 64-80 in the high word, so every size up to 9x9 fits in two longs.
+ * One instance per size and win length is built when the class loads and shared by every board using them.
+ */
+final class BoardMasks {
+
+    private static final BoardMasks[][] BY_RULES = new BoardMasks[Board.MAX_SIZE + 1][Board.MAX_SIZE + 1];
+
+    static {
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size++) {
+            for (int winLength = Board.MIN_SIZE; winLength <= size; winLength++) {
+                BY_RULES[size][winLength] = new BoardMasks(size, winLength);
+            }
+        }
+    }
+
+    /**
+     * Low and high words of every window of {@code winLength} cells a player can win with: horizontal windows first,
+     * then vertical, diagonal and anti-diagonal ones. With a full-length win rule these are just the rows, columns and
+     * the two diagonals.
+     */
+    final long[] lineLo;
+    final long[] lineHi;
+
+    /**
+     * Mask of every cell on the board, used to detect a full board.
+     */
+    final long fullLo;
+    final long fullHi;
+
+    private BoardMasks(int size, int winLength) {
+        int span = size - winLength + 1; // window start positions along one line
+        int lines = 2 * size * span + 2 * span * span;
+        lineLo = new long[lines];
+        lineHi = new long[lines];
+
+        int line = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < span; col++) {
+                addWindow(line++, size, winLength, row, col, 0, 1);
+            }
+        }
+        for (int col = 0; col < size; col++) {
+            for (int row = 0; row < span; row++) {
+                addWindow(line++, size, winLength, row, col, 1, 0);
+            }
+        }
+        for (int row = 0; row < span; row++) {
+            for (int col = 0; col < span; col++) {
+                addWindow(line++, size, winLength, row, col, 1, 1);
+            }
+        }
+        for (int row = 0; row < span; row++) {
+            for (int col = winLength - 1; col < size; col++) {
+                addWindow(line++, size, winLength, row, col, 1, -1);
+            }
+        }
+
+        int cells = size * size;
+        fullLo = cells >= 64 ? -1L : (1L << cells) - 1;
+        fullHi = cells > 64 ? (1L << (cells - 64)) - 1 : 0L;
+    }
+
+    /**
+     * Returns the shared masks for the given board size and win length.
+     *
+     * @param size      the board size
+     * @param winLength the number of marks in a row needed to win
+     * @return the masks for those rules
+     * @throws IllegalArgumentException if the size is outside {@link Board#MIN_SIZE}..{@link Board#MAX_SIZE} or the
+     *                                  win length is outside {@link Board#MIN_SIZE}..size
+     */
+    static BoardMasks forRules(int size, int winLength) {
+        if (size < Board.MIN_SIZE || size > Board.MAX_SIZE) {
+            throw new IllegalArgumentException("Unsupported board size: " + size);
+        }
+        if (winLength < Board.MIN_SIZE || winLength > size) {
+            throw new IllegalArgumentException("Unsupported win length " + winLength + " for board size " + size);
+        }
+        return BY_RULES[size][winLength];
+    }
+
+    private void addWindow(int line, int size, int winLength, int row, int col, int rowStep, int colStep) {
+        for (int i = 0; i < winLength; i++) {
+            int cell = (row + i * rowStep) * size + col + i * colStep;
+            if (cell < 64) {
+                lineLo[line] |= 1L << cell;
+            } else {
+                lineHi[line] |= 1L << (cell - 64);
+            }
+        }
+    }
+}
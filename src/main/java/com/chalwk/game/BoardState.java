@@ -8,4 +8,23 @@ public enum BoardState {
     PLAYER2_WINS,
     DRAW,
     IN_PROGRESS;
+
+    /**
+     * Determines the game state from the outcome the board tracked while placing the last move.
+     *
+     * @param board the game board
+     * @return the current state of the game
+     */
+    public static BoardState of(Board board) {
+        return switch (board.checkWinner()) {
+            case 1 -> PLAYER1_WINS;
+            case 2 -> PLAYER2_WINS;
+            case 0 -> DRAW;
+            default -> IN_PROGRESS;
+        };
+    }
+
+    public boolean isOver() {
+        return this != IN_PROGRESS;
+    }
 }
@@ -0,0 +1,95 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+/**
+ * The text layout of an empty board of one size: column header, row labels, cell borders and separators, plus the
+ * position of every cell's glyph in it. Built once per size when the class loads; a board renders by copying the
+ * template and writing its marks at the glyph offsets.
+ */
+final class BoardTemplate {
+
+    private static final BoardTemplate[] BY_SIZE = new BoardTemplate[Board.MAX_SIZE + 1];
+
+    static {
+        for (int size = Board.MIN_SIZE; size <= Board.MAX_SIZE; size++) {
+            BY_SIZE[size] = new BoardTemplate(size);
+        }
+    }
+
+    /**
+     * The rendered empty board.
+     */
+    private final char[] chars;
+
+    /**
+     * For each cell ({@code row * size + col}), the index of its glyph in {@link #chars}.
+     */
+    final int[] glyphOffsets;
+
+    private BoardTemplate(int size) {
+        String newline = System.lineSeparator();
+        int numberWidth = String.valueOf(size).length();
+        glyphOffsets = new int[size * size];
+        StringBuilder sb = new StringBuilder();
+
+        // Column numbers, with 4 spaces before the first one
+        sb.append(newline).append("    ");
+        for (int col = 0; col < size; col++) {
+            sb.append(pad(col, numberWidth)).append("   ");
+        }
+        sb.append(newline);
+
+        String separator = "  |" + "---+".repeat(size - 1) + "---|" + newline;
+        for (int row = 0; row < size; row++) {
+            sb.append(pad(row, numberWidth)).append(' ');
+            for (int col = 0; col < size; col++) {
+                sb.append("| ");
+                glyphOffsets[row * size + col] = sb.length();
+                sb.append("  ");
+            }
+            sb.append('|').append(newline);
+
+            if (row < size - 1) {
+                sb.append(separator);
+            }
+        }
+
+        chars = sb.toString().toCharArray();
+    }
+
+    /**
+     * Returns the shared template for the given board size.
+     *
+     * @param size the board size, already validated by {@link BoardMasks#forRules}
+     * @return the template for that size
+     */
+    static BoardTemplate forSize(int size) {
+        return BY_SIZE[size];
+    }
+
+    private static String pad(int number, int width) {
+        String text = String.valueOf(number);
+        return " ".repeat(width - text.length()) + text;
+    }
+
+    /**
+     * Creates a fresh copy of the empty board text, for a board to write its glyphs into.
+     *
+     * @return a new character array the caller owns
+     */
+    char[] copy() {
+        return chars.clone();
+    }
+
+    /**
+     * Gets the character shown for a cell's owner.
+     *
+     * @param player 1, 2 or 0 for an empty cell
+     * @return the glyph
+     */
+    static char glyph(int player) {
+        return player == 1 ? 'X' : player == 2 ? 'O' : ' ';
+    }
+}
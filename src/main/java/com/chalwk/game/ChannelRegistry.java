@@ -0,0 +1,133 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+import com.chalwk.util.LongObjectMap;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import static com.chalwk.bot.BotInitializer.getShardManager;
+
+/**
+ * In-memory index of the game channel configured for each guild.
+ * Channel checks on the command path are a single map lookup; the JDA channel handle is resolved on first use and
+ * cached until the channel is deleted.
+ */
+public class ChannelRegistry implements GameNotifier {
+
+    private final LongObjectMap<Entry> channels = new LongObjectMap<>();
+
+    /**
+     * Gets the game channel configured for a guild.
+     *
+     * @param guildId the guild ID
+     * @return the channel ID, or 0 if the guild has no game channel
+     */
+    public long getChannelId(long guildId) {
+        Entry entry = channels.get(guildId);
+        return entry == null ? 0 : entry.channelId;
+    }
+
+    /**
+     * Checks if the given channel is the game channel of the guild.
+     *
+     * @param guildId   the guild ID
+     * @param channelId the channel ID
+     * @return true if the channel is configured for the guild, false otherwise
+     */
+    public boolean isConfigured(long guildId, long channelId) {
+        return getChannelId(guildId) == channelId;
+    }
+
+    /**
+     * Sets the game channel of a guild, replacing any previous one.
+     *
+     * @param guildId   the guild ID
+     * @param channelId the channel ID
+     */
+    public void setChannel(long guildId, long channelId) {
+        channels.put(guildId, new Entry(channelId));
+    }
+
+    /**
+     * Removes the game channel of a guild.
+     *
+     * @param guildId the guild ID
+     */
+    public void removeChannel(long guildId) {
+        channels.remove(guildId);
+    }
+
+    /**
+     * Gets the cached handle of the game channel configured for a guild, resolving it once if needed.
+     *
+     * @param guildId the guild ID
+     * @return the channel, or null if none is configured or it cannot be found
+     */
+    public TextChannel getChannel(long guildId) {
+        Entry entry = channels.get(guildId);
+        if (entry == null) {
+            return null;
+        }
+        TextChannel channel = entry.handle;
+        if (channel == null) {
+            channel = getShardManager().getTextChannelById(entry.channelId);
+            entry.handle = channel;
+        }
+        return channel;
+    }
+
+    /**
+     * Posts a message to the guild's game channel, if it has one.
+     *
+     * @param guildId the guild
+     * @param message the message text
+     */
+    @Override
+    public void notify(long guildId, String message) {
+        TextChannel channel = getChannel(guildId);
+        if (channel == null) {
+            return; // the game channel was removed while the game was running
+        }
+        channel.sendMessage(message).queue();
+    }
+
+    /**
+     * Drops the configuration and cached handle of a deleted channel.
+     *
+     * @param guildId   the guild the channel belonged to
+     * @param channelId the deleted channel
+     * @return true if the channel was a configured game channel
+     */
+    public boolean channelDeleted(long guildId, long channelId) {
+        Entry entry = channels.get(guildId);
+        if (entry == null || entry.channelId != channelId) {
+            return false;
+        }
+        entry.handle = null;
+        return channels.remove(guildId, entry);
+    }
+
+    /**
+     * Calls the action for every configured guild and channel.
+     *
+     * @param action receives the guild ID and channel ID
+     */
+    public void forEach(ChannelConsumer action) {
+        channels.forEachEntry((guildId, entry) -> action.accept(guildId, entry.channelId));
+    }
+
+    @FunctionalInterface
+    public interface ChannelConsumer {
+        void accept(long guildId, long channelId);
+    }
+
+    private static final class Entry {
+        private final long channelId;
+        private volatile TextChannel handle;
+
+        private Entry(long channelId) {
+            this.channelId = channelId;
+        }
+    }
+}
@@ -2,118 +2,223 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.game;
 
+import com.chalwk.engine.Difficulty;
+import com.chalwk.engine.SearchResult;
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Mailbox;
+import com.chalwk.util.Scheduler;
 import com.chalwk.util.settings;
-import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.entities.User;
-import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
-import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
-import java.awt.*;
-import java.util.Date;
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
-
-import static com.chalwk.bot.BotInitializer.getShardManager;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a game between two players, managing game-related operations such as starting a game and scheduling game end tasks.
+ * <p>
+ * Moves, the bot's replies and the timeout all run through the game's {@link Mailbox}, one at a time, so the board and
+ * turn never see two writers without any lock being taken.
+ * <p>
+ * The game knows nothing about Discord: results go out through the {@link GameOutput} of the command being answered.
  */
 public class Game {
 
-    private final User invitingPlayer;
-    private final User invitedPlayer;
+    private final long id;
+    private final long invitingPlayer;
+    private final long invitedPlayer;
+    private final long guildId;
     private final GameManager gameManager;
     private final Board board;
-    private String embedID;
+    private final long deadline;
+    private final Difficulty botDifficulty;
     private int whos_turn;
-    private Date startTime;
-    private TimerTask gameEndTask;
+    private volatile ScheduledFuture<?> gameEndTask;
+    private volatile Ratings.Change ratingChange;
+    private final Mailbox mailbox;
 
     /**
-     * Creates a new game with the specified players and event.
+     * Creates a new game with the specified players. The game does nothing until {@link #startGame} is called.
      *
-     * @param invitingPlayer the player who initiated the game
-     * @param invitedPlayer  the player who was invited to join the game
-     * @param event          the event that triggered the game start
+     * @param id             the unique ID of the game
+     * @param invitingPlayer the user ID of the player who initiated the game
+     * @param invitedPlayer  the user ID of the player who was invited to join the game
+     * @param guildId        the guild the game is played in
      * @param gameManager    the game manager
      * @param size           the size of the game board
      */
-    public Game(User invitingPlayer, User invitedPlayer, SlashCommandInteractionEvent event, GameManager gameManager, int size) {
+    public Game(long id, long invitingPlayer, long invitedPlayer, long guildId, GameManager gameManager, int size) {
+        this(id, invitingPlayer, invitedPlayer, guildId, gameManager, size, size, null);
+    }
+
+    /**
+     * Creates a new game, optionally against the computer. The computer always plays as the invited player.
+     *
+     * @param id             the unique ID of the game
+     * @param invitingPlayer the user ID of the player who initiated the game
+     * @param invitedPlayer  the user ID of the invited player, or of the bot itself in a game against the computer
+     * @param guildId        the guild the game is played in
+     * @param gameManager    the game manager
+     * @param size           the size of the game board
+     * @param winLength      the number of marks in a row needed to win
+     * @param botDifficulty  the strength of the computer opponent, or null if both players are human
+     */
+    public Game(long id, long invitingPlayer, long invitedPlayer, long guildId, GameManager gameManager, int size, int winLength, Difficulty botDifficulty) {
+        this.id = id;
         this.invitingPlayer = invitingPlayer;
         this.invitedPlayer = invitedPlayer;
+        this.guildId = guildId;
         this.whos_turn = getStartingPlayer();
         this.gameManager = gameManager;
-        this.board = new Board(size);
-        startGame(event);
+        this.board = new Board(size, winLength);
+        this.deadline = System.currentTimeMillis() + settings.getDefaultTimeLimit() * 1000L;
+        this.botDifficulty = botDifficulty;
+        this.mailbox = new Mailbox("game " + id);
     }
 
-    public EmbedBuilder createGameEmbed() {
-        User player = this.whos_turn == 1 ? invitingPlayer : invitedPlayer;
-        return new EmbedBuilder()
-                .setTitle("⭕❌ TIC TAC TOE ❌⭕")
-                .addField("Players: ", this.getInvitingPlayer().getAsMention() + " VS " + this.getInvitedPlayer().getAsMention(), true)
-                .addField("Board: ", "```" + board.printBoard() + "```", false)
-                .setFooter("Turn: " + player.getEffectiveName() + " (" + (this.whos_turn == 1 ? "❌" : "⭕") + ")")
-                .setColor(Color.BLUE);
+    /**
+     * Rebuilds a game recovered from the journal. Call {@link #resumeGame} once it is registered.
+     *
+     * @param recovered   the state read from the journal
+     * @param gameManager the game manager
+     */
+    Game(GameJournal.RecoveredGame recovered, GameManager gameManager) {
+        this.id = recovered.id;
+        this.invitingPlayer = recovered.invitingPlayer;
+        this.invitedPlayer = recovered.invitedPlayer;
+        this.guildId = recovered.guildId;
+        this.gameManager = gameManager;
+        this.board = new Board(recovered.size, recovered.winLength);
+        this.deadline = recovered.deadline;
+        this.botDifficulty = Difficulty.byId(recovered.botDifficulty);
+        this.mailbox = new Mailbox("game " + id);
+
+        if (recovered.cells != null) {
+            for (int cell = 0; cell < recovered.cells.length; cell++) {
+                if (recovered.cells[cell] != 0) {
+                    board.makeMove(cell / recovered.size, cell % recovered.size, recovered.cells[cell]);
+                }
+            }
+        }
+        this.whos_turn = recovered.whosTurn;
+    }
+
+    /**
+     * Formats a user ID as a Discord mention. The client resolves the name, so no user lookup is needed to render.
+     *
+     * @param userId the user ID
+     * @return the mention string
+     */
+    public static String mention(long userId) {
+        return "<@" + userId + ">";
     }
 
     /**
-     * Updates the game embed with the current game state.
+     * Plays a move for a player and shows the result, checking first that the game is still running and that it is
+     * the player's turn. In a game against the computer the bot answers before the board is shown.
+     * Must run on the game's mailbox; see {@link GameManager#playMove}.
      *
-     * @param event the event that triggered the game update
-     * @param state the current state of the game
+     * @param player the user ID of the player making the move
+     * @param row    the row to play
+     * @param col    the column to play
+     * @param output where to send the result
      */
-    public void updateGameEmbed(SlashCommandInteractionEvent event, BoardState state) {
+    void playMove(long player, int row, int col, GameOutput output) {
+        if (board.checkWinner() != -1 || gameManager.getGame(player) != this) { // won, drawn or timed out meanwhile
+            output.reply("The game has already ended!");
+            return;
+        }
+
+        if (getPlayerToMove() != player) {
+            output.reply("It's not your turn.");
+            return;
+        }
+
+        int result = makeMove(row, col);
+        if (result == 0) {
+            output.reply("Invalid move. Row and column numbers must be between 0 and " + (board.getROWS() - 1) + ".");
+            return;
+        } else if (result == 1) {
+            output.reply("Invalid move. The cell is already occupied.");
+            return;
+        }
 
-        EmbedBuilder embed = createGameEmbed();
+        setWhosTurn();
+        if (isBotTurn()) {
+            playBotMove();
+        }
 
-        if (state == BoardState.IN_PROGRESS) {
-            embed.setColor(Color.BLUE);
-        } else if (state == BoardState.PLAYER1_WINS) {
-            embed.setColor(Color.GREEN);
-            embed.setFooter("Game Over! " + invitingPlayer.getAsMention() + " wins!");
-            endGame();
-        } else if (state == BoardState.PLAYER2_WINS) {
-            embed.setColor(Color.RED);
-            embed.setFooter("Game Over! " + invitedPlayer.getAsMention() + " wins!");
-            endGame();
-        } else if (state == BoardState.DRAW) {
-            embed.setColor(Color.YELLOW);
-            embed.setFooter("Game Over! It's a draw!");
-            endGame();
+        BoardState state = BoardState.of(board);
+        if (state.isOver()) {
+            endGame(state);
         }
+        output.showBoard(this, state);
+    }
 
-        event.getChannel().deleteMessageById(getEmbedID()).queue();
-        event.replyEmbeds(embed.build()).queue();
-        setMessageID(event);
+    /**
+     * Plays a move for the player whose turn it is and records it in the journal.
+     *
+     * @param row the row to play
+     * @param col the column to play
+     * @return the result of {@link Board#makeMove(int, int, int)}
+     */
+    public int makeMove(int row, int col) {
+        int result = board.makeMove(row, col, whos_turn);
+        if (result == 2) {
+            gameManager.getStats().movePlayed();
+            if (gameManager.getJournal() != null) {
+                gameManager.getJournal().movePlayed(this, row, col, whos_turn);
+            }
+        }
+        return result;
     }
 
     /**
-     * Gets the game board.
+     * Lets the computer opponent choose and play its move, then passes the turn back.
+     * Search statistics are logged so the node rate can be used to size hardware.
+     */
+    public void playBotMove() {
+        long start = System.nanoTime();
+        SearchResult result = botDifficulty.getEngine(board.getROWS()).search(board, whos_turn, botDifficulty.getTimeBudgetMillis());
+        gameManager.getStats().botMovePlayed(System.nanoTime() - start);
+        makeMove(result.getRow(), result.getCol());
+        setWhosTurn();
+        Logger.info("Bot move in game {} ({}x{}, {}): {}", id, board.getROWS(), board.getROWS(), botDifficulty.getLabel(), result);
+    }
+
+    /**
+     * Checks if this game is played against the computer.
      *
-     * @return the game board
+     * @return true if the invited player is the bot
      */
-    public Board getBoard() {
-        return this.board;
+    public boolean isBotGame() {
+        return botDifficulty != null;
+    }
+
+    /**
+     * Checks if the computer opponent is the player to move.
+     *
+     * @return true if the bot should play next
+     */
+    public boolean isBotTurn() {
+        return botDifficulty != null && whos_turn == 2 && board.checkWinner() == -1;
     }
 
     /**
-     * Gets the ID of the message embed for the game.
+     * Gets the strength of the computer opponent.
      *
-     * @return the ID of the message embed for the game
+     * @return the difficulty, or null if both players are human
      */
-    public String getEmbedID() {
-        return this.embedID;
+    public Difficulty getBotDifficulty() {
+        return botDifficulty;
     }
 
     /**
-     * Sets the ID of the message embed for the game.
+     * Gets the game board.
      *
-     * @param embedID the ID of the message embed for the game
+     * @return the game board
      */
-    private void setEmbedID(String embedID) {
-        this.embedID = embedID;
+    public Board getBoard() {
+        return this.board;
     }
 
     /**
@@ -133,91 +238,132 @@ public class Game {
     }
 
     /**
-     * Starts the game, sends a notification to both players, and schedules the game end task.
+     * Starts the game, shows the board to both players, and schedules the game end task.
      *
-     * @param event the event that triggered the game start
+     * @param output where to show the new game
      */
-    public void startGame(SlashCommandInteractionEvent event) {
-        this.startTime = new Date();
+    public void startGame(GameOutput output) {
         scheduleGameEndTask();
-        event.replyEmbeds(createGameEmbed().build()).queue();
-        setMessageID(event);
+        output.acknowledge(this);
+        submit(() -> {
+            if (isBotTurn()) {
+                playBotMove();
+            }
+            output.showBoard(this, BoardState.IN_PROGRESS);
+        });
     }
 
     /**
-     * Ends the game
+     * Resumes a game recovered from the journal. The board is shown again on the next move.
      */
-    public void endGame() {
-        cancelGameEndTask();
-        gameManager.removeGame(invitingPlayer, invitedPlayer);
+    void resumeGame() {
+        scheduleGameEndTask();
+        submit(() -> {
+            if (isBotTurn()) {
+                playBotMove(); // the bot had not answered the last move before the restart
+            }
+        });
     }
 
     /**
-     * Schedules a task to end the game when the default time limit is reached.
+     * Queues work that reads or changes the game state. Tasks run one at a time, in the order they were submitted.
+     *
+     * @param task the task to run on the game's mailbox
      */
-    private void scheduleGameEndTask() {
-        if (gameEndTask != null) {
-            gameEndTask.cancel();
-        }
-        gameEndTask = new TimerTask() {
-            @Override
-            public void run() {
-                if (isTimeUp()) {
-                    this.cancel();
-                    String channelID = GameManager.getChannelID();
-                    TextChannel channel = getShardManager().getTextChannelById(channelID);
-                    channel.sendMessage("Times up! Game between " + invitingPlayer.getAsMention() + " and " + invitedPlayer.getAsMention() + " has ended!").queue();
-                    gameManager.removeGame(invitingPlayer, invitedPlayer);
-                }
-            }
-        };
-
-        Timer gameEndTimer = new Timer();
-        gameEndTimer.scheduleAtFixedRate(gameEndTask, 0, 1000);
+    public void submit(Runnable task) {
+        mailbox.submit(task);
     }
 
     /**
-     * Sets the ID of the message embed for the game after a delay.
+     * Ends a game that was won or drawn and, if it was played between two people, updates their ratings.
      *
-     * @param event the event associated with the command execution
+     * @param state how the game ended
      */
-    private void setMessageID(SlashCommandInteractionEvent event) {
-        new Timer().schedule(new TimerTask() {
-            @Override
-            public void run() {
-                setEmbedID(event.getChannel().getLatestMessageId());
+    public void endGame(BoardState state) {
+        cancelGameEndTask();
+        if (gameManager.removeGame(this)) {
+            gameManager.getStats().gameFinished();
+            if (!isBotGame() && invitingPlayer != invitedPlayer) { // a game against yourself proves nothing
+                ratingChange = gameManager.getRatings().recordGame(invitingPlayer, invitedPlayer, state);
             }
-        }, 700);
+        }
     }
 
     /**
-     * Checks if the default time limit for the game has been exceeded.
+     * Gets how the players' ratings changed when the game ended.
      *
-     * @return true if the time limit has been exceeded, false otherwise
+     * @return the new ratings, or null if the game is still running or was not rated
      */
-    private boolean isTimeUp() {
-        long elapsedTime = System.currentTimeMillis() - startTime.getTime();
-        return elapsedTime > settings.getDefaultTimeLimit() * 1000L;
+    public Ratings.Change getRatingChange() {
+        return this.ratingChange;
+    }
+
+    /**
+     * Schedules a one-shot task on the shared scheduler to end the game at its deadline.
+     */
+    private void scheduleGameEndTask() {
+        cancelGameEndTask();
+        long delay = Math.max(0, deadline - System.currentTimeMillis());
+        gameEndTask = Scheduler.schedule(() -> submit(this::onTimeUp), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ends the game once its time limit has been reached and notifies the players.
+     */
+    private void onTimeUp() {
+        gameEndTask = null;
+        if (!gameManager.removeGame(this)) {
+            return; // the game already ended
+        }
+        gameManager.getStats().gameTimedOut();
+        gameManager.getNotifier().notify(guildId, "Times up! Game between " + mention(invitingPlayer) + " and " + mention(invitedPlayer) + " has ended!");
     }
 
     /**
      * Gets the player who initiated the game.
      *
-     * @return the player who initiated the game
+     * @return the user ID of the player who initiated the game
      */
-    public User getInvitingPlayer() {
+    public long getInvitingPlayer() {
         return this.invitingPlayer;
     }
 
     /**
      * Gets the player who was invited to join the game.
      *
-     * @return the player who was invited to join the game
+     * @return the user ID of the player who was invited to join the game
      */
-    public User getInvitedPlayer() {
+    public long getInvitedPlayer() {
         return this.invitedPlayer;
     }
 
+    /**
+     * Gets the unique ID of the game.
+     *
+     * @return the game ID
+     */
+    public long getId() {
+        return this.id;
+    }
+
+    /**
+     * Gets the time at which the game ends if it is not finished before.
+     *
+     * @return the deadline in epoch milliseconds
+     */
+    public long getDeadline() {
+        return this.deadline;
+    }
+
+    /**
+     * Gets the guild the game is played in.
+     *
+     * @return the guild ID
+     */
+    public long getGuildId() {
+        return this.guildId;
+    }
+
     /**
      * Gets the player who starts the game.
      *
@@ -227,14 +373,32 @@ public class Game {
         return new Random().nextInt(2) + 1;
     }
 
+    /**
+     * Gets the user whose turn it is.
+     *
+     * @return the user ID of the player to move
+     */
+    public long getPlayerToMove() {
+        return whos_turn == 1 ? invitingPlayer : invitedPlayer;
+    }
+
+    /**
+     * Checks if the game is still registered with the game manager, that is, it has not ended.
+     *
+     * @return true if the game is running
+     */
+    boolean isRunning() {
+        return gameManager.getGame(invitingPlayer) == this;
+    }
+
     /**
      * Checks if the specified player is in the game.
      *
-     * @param player the player to check
+     * @param player the user ID of the player to check
      * @return true if the player is in the game, false otherwise
      */
-    public boolean isPlayer(User player) {
-        return player.equals(invitingPlayer) || player.equals(invitedPlayer);
+    public boolean isPlayer(long player) {
+        return player == invitingPlayer || player == invitedPlayer;
     }
 
     /**
@@ -242,7 +406,7 @@ public class Game {
      */
     private void cancelGameEndTask() {
         if (gameEndTask != null) {
-            gameEndTask.cancel();
+            gameEndTask.cancel(false);
             gameEndTask = null;
         }
     }
@@ -3,29 +3,74 @@
 
 package com.chalwk.game;
 
-import net.dv8tion.jda.api.entities.User;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GameInvite {
 
-    private final User invitingPlayer;
-    private final User invitedPlayer;
+    private final long invitingPlayer;
+    private final long invitedPlayer;
     private final int size;
+    private final int winLength;
+    private final long expiresAt;
+    private final AtomicBoolean claimed = new AtomicBoolean();
 
-    public GameInvite(User invitingPlayer, User invitedPlayer, int size) {
+    /**
+     * @param invitingPlayer the user ID of the player who sent the invite
+     * @param invitedPlayer  the user ID of the player who was invited
+     * @param size           the size of the game board
+     * @param winLength      the number of marks in a row needed to win
+     * @param expiresAt      when the invite expires, in epoch milliseconds
+     */
+    public GameInvite(long invitingPlayer, long invitedPlayer, int size, int winLength, long expiresAt) {
         this.invitingPlayer = invitingPlayer;
         this.invitedPlayer = invitedPlayer;
         this.size = size;
+        this.winLength = winLength;
+        this.expiresAt = expiresAt;
     }
 
     public int getSize() {
         return size;
     }
 
-    public User getInvitingPlayer() {
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public long getInvitingPlayer() {
         return invitingPlayer;
     }
 
-    public User getInvitedPlayer() {
+    public long getInvitedPlayer() {
         return invitedPlayer;
     }
-}
\ No newline at end of file
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    /**
+     * Marks the invite as used up (accepted, declined, cancelled or expired).
+     * Exactly one caller wins, which is how the registry makes every transition happen once.
+     *
+     * @return true if this call claimed the invite
+     */
+    boolean claim() {
+        return claimed.compareAndSet(false, true);
+    }
+
+    /**
+     * Releases a claim so the invite can be used again, for example when accepting it failed.
+     */
+    void unclaim() {
+        claimed.set(false);
+    }
+
+    boolean isClaimed() {
+        return claimed.get();
+    }
+}
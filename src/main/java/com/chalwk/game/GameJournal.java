@@ -0,0 +1,386 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.Scheduler;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of game starts, moves and game ends, used to rebuild in-flight games after a restart.
+ * <p>
+ * Callers only enqueue records. A single writer thread drains everything that is queued, writes it with one
+ * {@link FileChannel#write} pass and then forces it to disk once, so a burst of moves shares one fsync (group commit).
+ * Every record is framed with its length and CRC32, and replay stops at the first torn or corrupt record.
+ * The journal is periodically rewritten to hold only a snapshot of the live games, which keeps replay time bounded.
+ */
+public class GameJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x54545447; // "TTTG"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+
+    private static final byte START = 1;
+    private static final byte MOVE = 2;
+    private static final byte END = 3;
+    private static final byte SNAPSHOT = 4;
+
+    private static final int MAX_BATCH = 512;
+    private static final long COMPACT_INTERVAL_MINUTES = 10;
+    private static final long COMPACT_SIZE_THRESHOLD = 8L * 1024 * 1024;
+    private static final long SNAPSHOT_TIMEOUT_SECONDS = 10;
+
+    /**
+     * Marker placed on the queue to make the writer compact the journal between batches.
+     */
+    private static final ByteBuffer COMPACT = ByteBuffer.allocate(0);
+
+    private final Path path;
+    private final Path compactPath;
+    private final BlockingQueue<ByteBuffer> queue = new LinkedBlockingQueue<>();
+    private volatile boolean running;
+    private Supplier<Collection<Game>> liveGames;
+    private FileChannel channel;
+    private Thread writer;
+
+    public GameJournal(Path path) {
+        this.path = path;
+        this.compactPath = path.resolveSibling(path.getFileName() + ".compact");
+    }
+
+    /**
+     * Reads the journal and returns the games that were still running when it was last written.
+     * Must be called before {@link #start}.
+     *
+     * @return the recovered games, in the order they were started
+     */
+    public List<RecoveredGame> replay() {
+        Map<Long, RecoveredGame> games = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+
+        try (FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int) in.size());
+            while (data.hasRemaining() && in.read(data) >= 0) ;
+            data.flip();
+
+            int version = data.remaining() < HEADER_SIZE || data.getInt() != MAGIC ? 0 : data.getInt();
+            if (version != VERSION) {
+                Logger.warning("Game journal has an unknown format, ignoring it");
+                return new ArrayList<>();
+            }
+
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= 8) {
+                int length = data.getInt();
+                int checksum = data.getInt();
+                if (length <= 0 || length > data.remaining()) break; // torn tail
+
+                ByteBuffer body = data.slice().limit(length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) break;
+                data.position(data.position() + length);
+
+                applyRecord(body, games);
+            }
+        } catch (IOException e) {
+            Logger.warning("Failed to replay game journal: " + e.getMessage());
+        }
+        return new ArrayList<>(games.values());
+    }
+
+    private static void applyRecord(ByteBuffer body, Map<Long, RecoveredGame> games) {
+        byte type = body.get();
+        long id = body.getLong();
+        switch (type) {
+            case START, SNAPSHOT -> {
+                RecoveredGame game = new RecoveredGame(id, body.getLong(), body.getLong(), body.getLong(),
+                        body.get(), body.get(), body.getLong());
+                game.botDifficulty = body.get();
+                game.winLength = body.get();
+                if (type == SNAPSHOT) {
+                    int size = game.size;
+                    game.cells = new byte[size * size];
+                    body.get(game.cells);
+                }
+                games.put(id, game);
+            }
+            case MOVE -> {
+                RecoveredGame game = games.get(id);
+                if (game != null) {
+                    int row = body.get();
+                    int col = body.get();
+                    int player = body.get();
+                    if (game.cells == null) {
+                        game.cells = new byte[game.size * game.size];
+                    }
+                    game.cells[row * game.size + col] = (byte) player;
+                    game.whosTurn = player == 1 ? 2 : 1;
+                }
+            }
+            case END -> games.remove(id);
+            default -> Logger.warning("Unknown game journal record type " + type);
+        }
+    }
+
+    /**
+     * Opens the journal for appending, compacts it down to the given live games and starts the writer thread.
+     *
+     * @param liveGames supplies the games that are running, used when compacting
+     * @throws IOException if the journal cannot be opened
+     */
+    public void start(Supplier<Collection<Game>> liveGames) throws IOException {
+        this.liveGames = liveGames;
+        compact();
+
+        running = true;
+        writer = new Thread(this::runWriter, "game-journal");
+        writer.setDaemon(true);
+        writer.start();
+
+        Scheduler.scheduleAtFixedRate(() -> queue.offer(COMPACT), COMPACT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Records that a game has started.
+     */
+    public void gameStarted(Game game) {
+        append(gameRecord(START, game, null));
+    }
+
+    /**
+     * Records a move that was successfully played.
+     */
+    public void movePlayed(Game game, int row, int col, int player) {
+        ByteBuffer body = ByteBuffer.allocate(12);
+        body.put(MOVE).putLong(game.getId()).put((byte) row).put((byte) col).put((byte) player);
+        append(body);
+    }
+
+    /**
+     * Records that a game has ended for any reason.
+     */
+    public void gameEnded(Game game) {
+        ByteBuffer body = ByteBuffer.allocate(9);
+        body.put(END).putLong(game.getId());
+        append(body);
+    }
+
+    private static ByteBuffer gameRecord(byte type, Game game, Board board) {
+        int cells = board == null ? 0 : board.getROWS() * board.getROWS();
+        ByteBuffer body = ByteBuffer.allocate(45 + cells);
+        body.put(type).putLong(game.getId())
+                .putLong(game.getInvitingPlayer())
+                .putLong(game.getInvitedPlayer())
+                .putLong(game.getGuildId())
+                .put((byte) game.getBoard().getROWS())
+                .put((byte) game.getWhosTurn())
+                .putLong(game.getDeadline())
+                .put((byte) (game.isBotGame() ? game.getBotDifficulty().getId() : 0))
+                .put((byte) game.getBoard().getWinLength());
+        if (board != null) {
+            for (int row = 0; row < board.getROWS(); row++) {
+                for (int col = 0; col < board.getROWS(); col++) {
+                    body.put((byte) board.getCell(row, col));
+                }
+            }
+        }
+        return body;
+    }
+
+    private void append(ByteBuffer body) {
+        if (running) {
+            queue.offer(body.flip());
+        }
+    }
+
+    private void runWriter() {
+        List<ByteBuffer> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                ByteBuffer first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+
+                writeBatch(batch);
+                if (channel.size() > COMPACT_SIZE_THRESHOLD) {
+                    compact();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                Logger.severe("Failed to write game journal: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Frames and writes a batch of records, then forces them to disk with a single fsync.
+     */
+    private void writeBatch(List<ByteBuffer> batch) throws IOException {
+        List<ByteBuffer> frames = new ArrayList<>(batch.size() * 2);
+        CRC32 crc = new CRC32();
+        for (ByteBuffer body : batch) {
+            if (body == COMPACT) {
+                flush(frames);
+                compact();
+                continue;
+            }
+            crc.reset();
+            crc.update(body.duplicate());
+            frames.add(ByteBuffer.allocate(8).putInt(body.remaining()).putInt((int) crc.getValue()).flip());
+            frames.add(body);
+        }
+        flush(frames);
+    }
+
+    private void flush(List<ByteBuffer> frames) throws IOException {
+        if (frames.isEmpty()) return;
+        ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) remaining += buffer.remaining();
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+        channel.force(false);
+        frames.clear();
+    }
+
+    /**
+     * Rewrites the journal as one snapshot record per live game and swaps it in with an atomic rename.
+     * Runs on the writer thread (or before it starts), so no records are appended while the file is replaced.
+     * Each snapshot is taken on its game's mailbox, so it never sees a move half-applied. A move that is both in a
+     * snapshot and still queued is replayed twice, which is harmless because the cell is already taken the second time.
+     * If anything fails the old journal stays in place and is reopened.
+     */
+    private void compact() throws IOException {
+        List<ByteBuffer> snapshots = takeSnapshots();
+        CRC32 crc = new CRC32();
+        try (FileChannel out = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip());
+            for (ByteBuffer body : snapshots) {
+                crc.reset();
+                crc.update(body.duplicate());
+                ByteBuffer frame = ByteBuffer.allocate(8).putInt(body.remaining()).putInt((int) crc.getValue()).flip();
+                while (frame.hasRemaining() || body.hasRemaining()) {
+                    out.write(new ByteBuffer[]{frame, body});
+                }
+            }
+            out.force(true);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        try {
+            try {
+                Files.move(compactPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(compactPath, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // The compacted journal if the move succeeded, the old one otherwise; never leave the writer without a file.
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    /**
+     * Takes a snapshot record of every live game on the game's own mailbox and waits for all of them. Games that end
+     * before their snapshot runs are left out.
+     */
+    private List<ByteBuffer> takeSnapshots() throws IOException {
+        List<CompletableFuture<ByteBuffer>> pending = new ArrayList<>();
+        for (Game game : liveGames.get()) {
+            pending.add(CompletableFuture.supplyAsync(
+                    () -> game.isRunning() ? gameRecord(SNAPSHOT, game, game.getBoard()).flip() : null, game::submit));
+        }
+
+        try {
+            CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new)).get(SNAPSHOT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while taking game snapshots");
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IOException("Failed to take game snapshots: " + e, e);
+        }
+
+        List<ByteBuffer> snapshots = new ArrayList<>(pending.size());
+        for (CompletableFuture<ByteBuffer> snapshot : pending) {
+            ByteBuffer body = snapshot.join();
+            if (body != null) {
+                snapshots.add(body);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Stops accepting records, writes whatever is still queued and closes the file.
+     */
+    @Override
+    public void close() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            Logger.warning("Failed to close game journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The state of a game rebuilt from the journal.
+     */
+    public static final class RecoveredGame {
+        final long id;
+        final long invitingPlayer;
+        final long invitedPlayer;
+        final long guildId;
+        final int size;
+        final long deadline;
+        int whosTurn;
+        int botDifficulty;
+        int winLength;
+        byte[] cells;
+
+        private RecoveredGame(long id, long invitingPlayer, long invitedPlayer, long guildId, int size, int whosTurn, long deadline) {
+            this.id = id;
+            this.invitingPlayer = invitingPlayer;
+            this.invitedPlayer = invitedPlayer;
+            this.guildId = guildId;
+            this.size = size;
+            this.whosTurn = whosTurn;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -2,153 +2,362 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.game;
 
-import net.dv8tion.jda.api.EmbedBuilder;
-import net.dv8tion.jda.api.entities.User;
-import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import com.chalwk.engine.Difficulty;
+import com.chalwk.metrics.MetricsWriter;
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.LongObjectMap;
+import com.chalwk.util.settings;
 
 import java.awt.*;
-import java.util.HashMap;
-import java.util.Map;
-
-import static com.chalwk.util.fileIO.loadChannelID;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages game-related operations, including creating games, inviting players, and managing pending invites.
+ * All state lives in concurrent maps keyed by user ID and every transition claims its entries atomically, so commands
+ * arriving on different shards and timeout tasks can run at the same time without a global lock.
+ * <p>
+ * Players are identified by user ID only, and every answer goes through a {@link GameOutput}, so the manager can be
+ * driven without a Discord connection.
  */
 public class GameManager {
 
-    private static String channelID = "";
-    private final Map<User, Game> games;
-    private final Map<User, GameInvite> pendingInvites;
+    private final ChannelRegistry channels;
+    private final GameNotifier notifier;
+    private final LongObjectMap<Game> games;
+    private final InviteRegistry invites;
+    private final GameStats stats = new GameStats();
+    private final Ratings ratings = new Ratings();
+    private final AtomicLong nextGameId = new AtomicLong(System.currentTimeMillis());
+    private GameJournal journal;
 
     /**
      * Initializes an empty map for storing active games and pending invites.
+     *
+     * @param channels the game channel configured for each guild, which also receives the game notifications
      */
-    public GameManager() {
-        channelID = loadChannelID();
-        this.games = new HashMap<>();
-        this.pendingInvites = new HashMap<>();
+    public GameManager(ChannelRegistry channels) {
+        this(channels, channels);
     }
 
-    public static String getChannelID() {
-        return GameManager.channelID;
+    /**
+     * Initializes an empty map for storing active games and pending invites.
+     *
+     * @param channels the game channel configured for each guild
+     * @param notifier receives messages that are not an answer to a command, such as games running out of time
+     */
+    public GameManager(ChannelRegistry channels, GameNotifier notifier) {
+        this.channels = channels;
+        this.notifier = notifier;
+        this.games = new LongObjectMap<>();
+        this.invites = new InviteRegistry();
     }
 
-    public void setChannelID(String channelID) {
-        GameManager.channelID = channelID;
+    /**
+     * Gets the counters of game activity since the bot started.
+     *
+     * @return the game statistics
+     */
+    public GameStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Gets the players' ratings, which are kept in memory until {@link Ratings#open} gives them a file.
+     *
+     * @return the ratings
+     */
+    public Ratings getRatings() {
+        return ratings;
+    }
+
+    public ChannelRegistry getChannels() {
+        return channels;
+    }
+
+    public GameNotifier getNotifier() {
+        return notifier;
+    }
+
+    /**
+     * Gets the journal that game starts, moves and ends are written to.
+     *
+     * @return the journal, or null if games are not journaled
+     */
+    public GameJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Rebuilds the games that were running when the journal was last written, then starts journaling new activity.
+     * Games whose deadline passed while the bot was down are dropped.
+     *
+     * @param journal the journal to recover from and write to
+     * @throws IOException if the journal cannot be opened for writing
+     */
+    public void recoverGames(GameJournal journal) throws IOException {
+        List<GameJournal.RecoveredGame> recovered = journal.replay();
+        long now = System.currentTimeMillis();
+        List<Game> resumed = new ArrayList<>();
+
+        for (GameJournal.RecoveredGame state : recovered) {
+            nextGameId.accumulateAndGet(state.id + 1, Math::max);
+            if (state.deadline <= now) continue;
+
+            Game game = new Game(state, this);
+            if (game.getBoard().checkWinner() != -1 || !reservePlayers(game)) continue;
+            resumed.add(game);
+        }
+
+        // Journal first: a resumed game may play the bot's move straight away, and that move must be recorded.
+        this.journal = journal;
+        journal.start(() -> games.values().stream().distinct().toList());
+        resumed.forEach(Game::resumeGame);
+        Logger.info("Recovered " + resumed.size() + " of " + recovered.size() + " journaled games");
     }
 
     /**
      * Checks if a user is currently playing a game.
      *
-     * @param player the user to check
+     * @param player the user ID to check
      * @return true if the user is in a game, false otherwise
      */
-    public boolean isInGame(User player) {
+    public boolean isInGame(long player) {
         return games.containsKey(player);
     }
 
     /**
      * Accepts a pending invite and creates a new game with the inviting and invited players.
      *
-     * @param invitedPlayer the user who accepted the invite
-     * @param event         the event that triggered the invite acceptance
+     * @param invitedPlayer  the user ID of the player who accepted the invite
+     * @param invitingPlayer the user ID of the player whose invite to accept, or 0 for the oldest pending invite
+     * @param guildId        the guild the game is played in
+     * @param output         where to send the answer
      */
-    public void acceptInvite(User invitedPlayer, SlashCommandInteractionEvent event) {
-        GameInvite invite = pendingInvites.get(invitedPlayer);
-        int size = invite.getSize(); // the board size to use for this game
+    public void acceptInvite(long invitedPlayer, long invitingPlayer, long guildId, GameOutput output) {
+        if (isInGame(invitedPlayer)) {
+            output.reply("## You are already in a game.");
+            return;
+        }
 
-        User invitingPlayer = invite.getInvitingPlayer();
-        if (isInGame(invitingPlayer)) {
-            event.reply(invitingPlayer.getName() + " is already in a game.\nPlease wait until their current game is finished.").setEphemeral(true).queue();
+        // Claiming the invite makes sure only one /accept can turn it into a game.
+        GameInvite invite = invites.claimReceived(invitedPlayer, invitingPlayer);
+        if (invite == null) {
+            output.reply(noInvitesMessage(invitingPlayer));
             return;
         }
-        createGame(invitingPlayer, invitedPlayer, event, size);
+
+        invitingPlayer = invite.getInvitingPlayer();
+        if (!createGame(invitingPlayer, invitedPlayer, guildId, output, invite.getSize(), invite.getWinLength(), null)) {
+            invites.restore(invite);
+            output.reply(Game.mention(invitingPlayer) + " is already in a game.\nPlease wait until their current game is finished.");
+        }
     }
 
     /**
      * Declines a pending invite and notifies the inviting player.
      *
-     * @param invitedPlayer the user who declined the invite
-     * @param event         the event that triggered the invite decline
+     * @param invitedPlayer  the user ID of the player who declined the invite
+     * @param invitingPlayer the user ID of the player whose invite to decline, or 0 for the oldest pending invite
+     * @param output         where to send the answer
      */
-    public void declineInvite(User invitedPlayer, SlashCommandInteractionEvent event) {
-        GameInvite invite = pendingInvites.get(invitedPlayer);
-        User invitingPlayer = invite.getInvitingPlayer();
-        event.replyEmbeds(new EmbedBuilder()
-                .setTitle("Game Invite Declined")
-                .setDescription(invitedPlayer.getAsMention() + " has declined the invite from " + invitingPlayer.getAsMention() + "!")
-                .setColor(Color.RED).build()).queue();
-        pendingInvites.remove(invitedPlayer);
+    public void declineInvite(long invitedPlayer, long invitingPlayer, GameOutput output) {
+        GameInvite invite = invites.claimReceived(invitedPlayer, invitingPlayer);
+        if (invite == null) {
+            output.reply(noInvitesMessage(invitingPlayer));
+            return;
+        }
+
+        output.announce(new Notice("Game Invite Declined",
+                Game.mention(invitedPlayer) + " has declined the invite from " + Game.mention(invite.getInvitingPlayer()) + "!",
+                null, Color.RED));
     }
 
     /**
-     * Returns the map of pending invites.
+     * Cancels an invite the player has sent.
      *
-     * @return a map containing the pending invites
+     * @param invitingPlayer the user ID of the player who sent the invite
+     * @param invitedPlayer  the user ID of the player it was sent to, or 0 for the oldest pending invite
+     * @param output         where to send the answer
      */
-    public Map<User, GameInvite> getPendingInvites() {
-        return pendingInvites;
+    public void cancelInvite(long invitingPlayer, long invitedPlayer, GameOutput output) {
+        GameInvite invite = invites.claimSent(invitingPlayer, invitedPlayer);
+        if (invite == null) {
+            output.reply("## You don't have any pending invites.");
+            return;
+        }
+        output.reply("Invite to play a game with " + Game.mention(invite.getInvitedPlayer()) + " has been canceled.");
     }
 
-    public Game getGame(User player) {
+    /**
+     * Plays a move for a player in their current game. The move is queued on the game's mailbox and answered from
+     * there once it has been applied.
+     *
+     * @param player the user ID of the player making the move
+     * @param row    the row to play
+     * @param col    the column to play
+     * @param output where to send the answer
+     */
+    public void playMove(long player, int row, int col, GameOutput output) {
+        Game game = getGame(player);
+        if (game == null) {
+            output.reply("## You are not in a game.");
+            return;
+        }
+
+        // Both players' moves go through the game's mailbox, so they are applied one at a time and in order.
+        output.acknowledge(game);
+        game.submit(() -> game.playMove(player, row, col, output));
+    }
+
+    private static String noInvitesMessage(long invitingPlayer) {
+        return invitingPlayer == 0
+                ? "## You don't have any pending invites."
+                : "## You don't have a pending invite from " + Game.mention(invitingPlayer) + ".";
+    }
+
+    /**
+     * Returns the registry of pending invites.
+     *
+     * @return the pending invites
+     */
+    public InviteRegistry getInvites() {
+        return invites;
+    }
+
+    public Game getGame(long player) {
         return games.get(player);
     }
 
     /**
      * Creates a new game and adds the inviting and invited players to it.
+     * Both players are reserved with per-player atomic inserts before the game starts, so a player can never end up
+     * in two games at once.
      *
-     * @param invitingPlayer the user who initiated the game
-     * @param invitedPlayer  the user who was invited to join the game
-     * @param event          the event that triggered the game creation
+     * @param invitingPlayer the user ID of the player who initiated the game
+     * @param invitedPlayer  the user ID of the player who was invited to join the game
+     * @param guildId        the guild the game is played in
+     * @param output         where to show the new game
+     * @param size           the size of the game board
+     * @return true if the game was created, false if either player is already in a game
      */
-    public void createGame(User invitingPlayer, User invitedPlayer, SlashCommandInteractionEvent event, int size) {
-        Game game = new Game(invitingPlayer, invitedPlayer, event, this, size);
-        pendingInvites.remove(invitedPlayer);
-        games.put(invitingPlayer, game);
-        games.put(invitedPlayer, game);
+    public boolean createGame(long invitingPlayer, long invitedPlayer, long guildId, GameOutput output, int size) {
+        return createGame(invitingPlayer, invitedPlayer, guildId, output, size, size, null);
     }
 
     /**
-     * Invites a player to join a game.
+     * Creates a new game, optionally against the computer. The bot is not reserved as a player, so it can play any
+     * number of games at once.
      *
-     * @param invitingPlayer the user who initiated the game
-     * @param invitedPlayer  the user who was invited to join the game
-     * @param size
-     * @param event          the event that triggered the invite
-     */
-    public void invitePlayer(User invitingPlayer, User invitedPlayer, int size, SlashCommandInteractionEvent event) {
-
-        EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle("Game Invite");
-
-        if (!isInGame(invitingPlayer) && !isInGame(invitedPlayer)) {
-            pendingInvites.put(invitedPlayer, new GameInvite(invitingPlayer, invitedPlayer, size));
-            event.replyEmbeds(embed
-                    .setDescription(invitingPlayer.getAsMention() + " has invited " + invitedPlayer.getAsMention() + " to play a game!")
-                    .setFooter("Type /accept to join the game or /decline to decline the invite.")
-                    .setColor(Color.GREEN).build()).queue();
-        } else {
-            event.replyEmbeds(embed
-                    .setDescription("You or " + invitedPlayer.getName() + " are already in a game.")
-                    .setColor(Color.RED).build()).setEphemeral(true).queue();
+     * @param invitingPlayer the user ID of the player who initiated the game
+     * @param invitedPlayer  the user ID of the invited player, or of the bot itself in a game against the computer
+     * @param guildId        the guild the game is played in
+     * @param output         where to show the new game
+     * @param size           the size of the game board
+     * @param winLength      the number of marks in a row needed to win
+     * @param botDifficulty  the strength of the computer opponent, or null if both players are human
+     * @return true if the game was created, false if a human player is already in a game
+     */
+    public boolean createGame(long invitingPlayer, long invitedPlayer, long guildId, GameOutput output, int size, int winLength, Difficulty botDifficulty) {
+        Game game = new Game(nextGameId.getAndIncrement(), invitingPlayer, invitedPlayer, guildId, this, size, winLength, botDifficulty);
+        if (!reservePlayers(game)) {
+            return false;
         }
+
+        if (journal != null) {
+            journal.gameStarted(game);
+        }
+        stats.gameStarted();
+        game.startGame(output);
+        return true;
     }
 
-    public Map<User, Game> getGames() {
-        return games;
+    /**
+     * Registers a game under both of its human players, unless either is already in a game.
+     */
+    private boolean reservePlayers(Game game) {
+        long invitingPlayer = game.getInvitingPlayer();
+        long invitedPlayer = game.getInvitedPlayer();
+
+        if (games.putIfAbsent(invitingPlayer, game) != null) {
+            return false;
+        }
+        if (game.isBotGame()) {
+            return true;
+        }
+        if (invitedPlayer != invitingPlayer && games.putIfAbsent(invitedPlayer, game) != null) {
+            games.remove(invitingPlayer, game);
+            return false;
+        }
+        return true;
     }
 
-    public void removeGame(User invitingPlayer, User invitedPlayer) {
-        this.getGames().remove(invitingPlayer);
-        this.getGames().remove(invitedPlayer);
+    /**
+     * Invites a player to join a game.
+     *
+     * @param invitingPlayer the user ID of the player who initiated the game
+     * @param invitedPlayer  the user ID of the player who was invited to join the game
+     * @param size           the size of the game board
+     * @param winLength      the number of marks in a row needed to win
+     * @param output         where to send the answer
+     */
+    public void invitePlayer(long invitingPlayer, long invitedPlayer, int size, int winLength, GameOutput output) {
+        if (isInGame(invitingPlayer) || isInGame(invitedPlayer)) {
+            output.reply("You or " + Game.mention(invitedPlayer) + " are already in a game.");
+            return;
+        }
+
+        long expiresAt = System.currentTimeMillis() + settings.getInviteTimeLimit() * 1000L;
+        switch (invites.add(new GameInvite(invitingPlayer, invitedPlayer, size, winLength, expiresAt))) {
+            case ALREADY_INVITED -> output.reply("## You have already invited " + Game.mention(invitedPlayer) + ".");
+            case TOO_MANY_INVITES -> output.reply("## You already have " + InviteRegistry.MAX_SENT
+                    + " pending invites.\nCancel one with /cancel or wait for them to expire.");
+            case ADDED -> output.announce(new Notice("Game Invite",
+                    Game.mention(invitingPlayer) + " has invited " + Game.mention(invitedPlayer) + " to play a game!\n"
+                            + size + "x" + size + " board, " + winLength + " in a row wins.",
+                    "Type /accept to join the game or /decline to decline the invite. The invite expires in "
+                            + settings.getInviteTimeLimit() / 60 + " minutes.",
+                    Color.GREEN));
+        }
     }
 
-    public void cancelInvite(User invitingPlayer) {
-        pendingInvites.remove(invitingPlayer);
+    /**
+     * Removes a game from the active games.
+     * Entries are only removed while they still point at this game, so a late timeout cannot remove a newer game.
+     *
+     * @param game the game to remove
+     * @return true if this call removed the game, false if it had already been removed
+     */
+    public boolean removeGame(Game game) {
+        boolean removed = games.remove(game.getInvitingPlayer(), game);
+        games.remove(game.getInvitedPlayer(), game);
+        if (removed && journal != null) {
+            journal.gameEnded(game);
+        }
+        return removed;
     }
 
-    public String getInvitee(User invitingPlayer) {
-        return pendingInvites.get(invitingPlayer).getInvitedPlayer().getAsMention();
+    /**
+     * Writes the game and invite gauges and the game activity counters for the metrics endpoint. The pending-invite
+     * gauge reads the registry's invite counter, so a scrape never waits on the invite lists the commands lock.
+     *
+     * @param out the writer to add the metrics to
+     */
+    public void writeMetrics(MetricsWriter out) {
+        long humanGames = games.values().stream().filter(game -> !game.isBotGame()).distinct().count();
+        long botGames = games.values().stream().filter(Game::isBotGame).count();
+        out.family("tictactoe_active_games", "gauge", "Games currently being played.")
+                .sample("tictactoe_active_games", humanGames, "opponent", "human")
+                .sample("tictactoe_active_games", botGames, "opponent", "bot");
+        out.gauge("tictactoe_pending_invites", "Invites waiting to be accepted, declined or to expire.", invites.size());
+        out.counter("tictactoe_games_started_total", "Games started.", stats.getGamesStarted());
+        out.counter("tictactoe_games_finished_total", "Games that ended with a win or a draw.", stats.getGamesFinished());
+        out.counter("tictactoe_games_timed_out_total", "Games ended by the time limit.", stats.getGamesTimedOut());
+        out.gauge("tictactoe_rated_players", "Players who have finished a rated game.", ratings.size());
+        out.counter("tictactoe_moves_total", "Moves played, by people and by the bot.", stats.getMovesPlayed());
+        out.family("tictactoe_bot_move_duration_seconds", "histogram", "Time the computer opponent spent choosing a move.")
+                .histogram("tictactoe_bot_move_duration_seconds", stats.getBotMoveTime());
     }
 }
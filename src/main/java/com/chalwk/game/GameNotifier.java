@@ -0,0 +1,19 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+/**
+ * Posts messages that are not an answer to any command, such as a game running out of time.
+ */
+@FunctionalInterface
+public interface GameNotifier {
+
+    /**
+     * Posts a message to a guild's game channel.
+     *
+     * @param guildId the guild
+     * @param message the message text
+     */
+    void notify(long guildId, String message);
+}
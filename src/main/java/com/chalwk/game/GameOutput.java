@@ -0,0 +1,46 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+/**
+ * Where the game core sends its answers to one command. The core only deals in user IDs and says what should be
+ * shown; the implementation decides how, so the same game logic runs behind Discord interactions or a local load test.
+ * <p>
+ * Every command is answered exactly once, by one of these methods. {@link #showBoard} may be called from a game's
+ * mailbox thread rather than the thread that ran the command; {@link #acknowledge} is called first when it will be.
+ */
+public interface GameOutput {
+
+    /**
+     * Called on the thread that ran the command when its answer has to wait for the game's mailbox, where other moves
+     * and the computer's search may run first. An output with a response deadline should acknowledge the command now.
+     * Does nothing by default.
+     *
+     * @param game the game the answer will come from
+     */
+    default void acknowledge(Game game) {
+    }
+
+    /**
+     * Answers only the user who ran the command, for example to explain why it was refused.
+     *
+     * @param message the message text, which may use Markdown
+     */
+    void reply(String message);
+
+    /**
+     * Answers with a notice everyone in the channel can see.
+     *
+     * @param notice the notice to show
+     */
+    void announce(Notice notice);
+
+    /**
+     * Shows the game board as the answer to the command.
+     *
+     * @param game  the game to show
+     * @param state the outcome of the game so far
+     */
+    void showBoard(Game game, BoardState state);
+}
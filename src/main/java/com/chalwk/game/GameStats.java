@@ -0,0 +1,76 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.game;
+
+import com.chalwk.metrics.Histogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for game activity: games started and how they ended, moves played and how long the bot thinks.
+ * Updated from the game mailboxes without locking.
+ */
+public class GameStats {
+
+    private final LongAdder gamesStarted = new LongAdder();
+    private final LongAdder gamesFinished = new LongAdder();
+    private final LongAdder gamesTimedOut = new LongAdder();
+    private final LongAdder movesPlayed = new LongAdder();
+    private final LongAdder botMoves = new LongAdder();
+    private final Histogram botMoveTime = new Histogram();
+
+    void gameStarted() {
+        gamesStarted.increment();
+    }
+
+    void gameFinished() {
+        gamesFinished.increment();
+    }
+
+    void gameTimedOut() {
+        gamesTimedOut.increment();
+    }
+
+    void movePlayed() {
+        movesPlayed.increment();
+    }
+
+    void botMovePlayed(long searchNanos) {
+        botMoves.increment();
+        botMoveTime.record(searchNanos);
+    }
+
+    public long getGamesStarted() {
+        return gamesStarted.sum();
+    }
+
+    /**
+     * Gets the number of games that ended with a win or a draw.
+     *
+     * @return the number of finished games
+     */
+    public long getGamesFinished() {
+        return gamesFinished.sum();
+    }
+
+    public long getGamesTimedOut() {
+        return gamesTimedOut.sum();
+    }
+
+    /**
+     * Gets the number of moves played, by people and by the bot.
+     *
+     * @return the number of moves
+     */
+    public long getMovesPlayed() {
+        return movesPlayed.sum();
+    }
+
+    public long getBotMoves() {
+        return botMoves.sum();
+    }
+
+    public Histogram getBotMoveTime() {
+        return botMoveTime;
+    }
+}
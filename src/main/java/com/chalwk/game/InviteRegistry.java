@@ -0,0 +1,339 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+import com.chalwk.util.LongObjectMap;
+import com.chalwk.util.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pending game invites, indexed both by the player who sent them and by the player who received them, so either side
+ * finds their invites with one map lookup. A player may have several invites open at once.
+ * <p>
+ * Every invite expires after a fixed time. Invites are also kept in a queue in the order they were sent, which with a
+ * fixed lifetime is also the order they expire in, so a periodic sweep only looks at the head of the queue and removes
+ * everything that has expired in one batch. Invites that expire between sweeps are already ignored by lookups.
+ * An invite put back after a failed accept expires before the invites sent since, so it waits in a second, small queue
+ * ordered by expiry instead, and the sweep looks at the head of both.
+ * <p>
+ * Each invite is claimed exactly once (accepted, declined, cancelled or expired) with a compare-and-set on the invite
+ * itself; the per-player lists are locked only while they are read or changed, so there is no registry-wide lock.
+ * A list's monitor is never held while calling into the maps, and the maps never call back into a list while holding
+ * their own locks, so the two kinds of lock are never nested.
+ */
+public class InviteRegistry {
+
+    /**
+     * The most invites a player may have sent and still pending.
+     */
+    public static final int MAX_SENT = 5;
+
+    private static final long SWEEP_INTERVAL_SECONDS = 15;
+
+    public enum AddResult {
+        ADDED,
+        ALREADY_INVITED,
+        TOO_MANY_INVITES
+    }
+
+    private final LongObjectMap<InviteList> bySender = new LongObjectMap<>();
+    private final LongObjectMap<InviteList> byRecipient = new LongObjectMap<>();
+    private final Queue<GameInvite> expiryQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger held = new AtomicInteger();
+    private final Queue<GameInvite> restoredQueue = new PriorityBlockingQueue<>(11, Comparator.comparingLong(GameInvite::getExpiresAt));
+
+    public InviteRegistry() {
+        Scheduler.scheduleAtFixedRate(this::sweepExpired, SWEEP_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Adds an invite unless the sender already invited the same player or has too many invites pending.
+     *
+     * @param invite the invite to add
+     * @return the outcome
+     */
+    public AddResult add(GameInvite invite) {
+        long now = System.currentTimeMillis();
+        long sender = invite.getInvitingPlayer();
+        while (true) {
+            InviteList sent = bySender.computeIfAbsent(sender, id -> new InviteList());
+            synchronized (sent) {
+                if (!sent.retired) {
+                    AddResult result = addIfAllowed(sent, invite, now);
+                    if (result != AddResult.ADDED) {
+                        return result;
+                    }
+                    break;
+                }
+            }
+            bySender.remove(sender, sent); // emptied and being dropped from the map; use a fresh list
+        }
+        held.incrementAndGet();
+        addToIndex(byRecipient, invite.getInvitedPlayer(), invite);
+        expiryQueue.offer(invite);
+        return AddResult.ADDED;
+    }
+
+    /**
+     * Adds the invite to the sender's list unless the limits forbid it. Called holding the list's monitor.
+     */
+    private static AddResult addIfAllowed(InviteList sent, GameInvite invite, long now) {
+        int pending = 0;
+        for (int i = 0; i < sent.size; i++) {
+            GameInvite other = sent.invites[i];
+            if (!isPending(other, now)) continue;
+            if (other.getInvitedPlayer() == invite.getInvitedPlayer()) {
+                return AddResult.ALREADY_INVITED;
+            }
+            pending++;
+        }
+        if (pending >= MAX_SENT) {
+            return AddResult.TOO_MANY_INVITES;
+        }
+        sent.add(invite);
+        return AddResult.ADDED;
+    }
+
+    /**
+     * Claims a pending invite received by a player, removing it from the registry.
+     *
+     * @param invitedPlayer  the player who received the invite
+     * @param invitingPlayer the player who sent it, or 0 for the oldest pending invite from anyone
+     * @return the claimed invite, or null if there is no matching pending invite
+     */
+    public GameInvite claimReceived(long invitedPlayer, long invitingPlayer) {
+        return claim(byRecipient, invitedPlayer, invitingPlayer, false);
+    }
+
+    /**
+     * Claims a pending invite sent by a player, removing it from the registry.
+     *
+     * @param invitingPlayer the player who sent the invite
+     * @param invitedPlayer  the player who received it, or 0 for the oldest pending invite to anyone
+     * @return the claimed invite, or null if there is no matching pending invite
+     */
+    public GameInvite claimSent(long invitingPlayer, long invitedPlayer) {
+        return claim(bySender, invitingPlayer, invitedPlayer, true);
+    }
+
+    /**
+     * Puts back an invite that was claimed but could not be used, if it has not expired in the meantime.
+     *
+     * @param invite the invite to restore
+     */
+    public void restore(GameInvite invite) {
+        if (invite.isExpired(System.currentTimeMillis())) {
+            return;
+        }
+        invite.unclaim();
+        addToIndex(bySender, invite.getInvitingPlayer(), invite);
+        held.incrementAndGet();
+        addToIndex(byRecipient, invite.getInvitedPlayer(), invite);
+        // It may have left the expiry queue when it was claimed. A second entry is harmless: the sweep skips claimed
+        // invites and removal from the indexes is idempotent.
+        restoredQueue.offer(invite);
+    }
+
+    /**
+     * Gets the pending invites a player has received, oldest first.
+     *
+     * @param invitedPlayer the player
+     * @return a snapshot of the invites
+     */
+    public List<GameInvite> getReceived(long invitedPlayer) {
+        return pending(byRecipient.get(invitedPlayer));
+    }
+
+    /**
+     * Gets the pending invites a player has sent, oldest first.
+     *
+     * @param invitingPlayer the player
+     * @return a snapshot of the invites
+     */
+    public List<GameInvite> getSent(long invitingPlayer) {
+        return pending(bySender.get(invitingPlayer));
+    }
+
+    /**
+     * Counts the invites held in the registry, including any that expired since the last sweep. Reads a counter, so it
+     * takes no lock and is cheap enough for every metrics scrape.
+     *
+     * @return the number of invites
+     */
+    public int size() {
+        return held.get();
+    }
+
+    private GameInvite claim(LongObjectMap<InviteList> index, long userId, long counterpart, boolean bySenderIndex) {
+        while (true) {
+            InviteList list = index.get(userId);
+            if (list == null) {
+                return null;
+            }
+
+            GameInvite candidate = null;
+            long now = System.currentTimeMillis();
+            synchronized (list) {
+                for (int i = 0; i < list.size; i++) {
+                    GameInvite invite = list.invites[i];
+                    long other = bySenderIndex ? invite.getInvitedPlayer() : invite.getInvitingPlayer();
+                    if (isPending(invite, now) && (counterpart == 0 || other == counterpart)) {
+                        candidate = invite;
+                        break;
+                    }
+                }
+            }
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.claim()) {
+                removeFromIndexes(candidate);
+                dropClaimedHeads();
+                return candidate;
+            }
+            // Another thread claimed it first; look again.
+        }
+    }
+
+    /**
+     * Removes every invite at the head of either queue that has expired, in one pass.
+     */
+    private void sweepExpired() {
+        long now = System.currentTimeMillis();
+        sweepExpired(expiryQueue, now);
+        sweepExpired(restoredQueue, now);
+    }
+
+    private void sweepExpired(Queue<GameInvite> queue, long now) {
+        GameInvite invite;
+        while ((invite = queue.peek()) != null && invite.isExpired(now)) {
+            if (!queue.remove(invite)) continue; // taken off the head by a concurrent claim
+            invite.claim();
+            // Claimed invites may still sit in an index after a race with add, so always clean up here.
+            removeFromIndexes(invite);
+        }
+    }
+
+    /**
+     * Drops invites that were claimed before they expired from the front of the expiry queue, so that in the usual case
+     * of invites being answered in the order they were sent the queue only holds pending invites.
+     */
+    private void dropClaimedHeads() {
+        dropClaimedHeads(expiryQueue);
+        dropClaimedHeads(restoredQueue);
+    }
+
+    private void dropClaimedHeads(Queue<GameInvite> queue) {
+        GameInvite head;
+        while ((head = queue.peek()) != null && head.isClaimed()) {
+            // Found at the head, so this does not scan the main queue, and the restored queue is small. The claim already
+            // left the indexes, except after a race with add, so clean up here as the sweep would.
+            if (queue.remove(head)) {
+                removeFromIndexes(head);
+            }
+        }
+    }
+
+    private static boolean isPending(GameInvite invite, long now) {
+        return !invite.isClaimed() && !invite.isExpired(now);
+    }
+
+    private static List<GameInvite> pending(InviteList list) {
+        List<GameInvite> result = new ArrayList<>();
+        if (list == null) {
+            return result;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (list) {
+            for (int i = 0; i < list.size; i++) {
+                if (isPending(list.invites[i], now)) {
+                    result.add(list.invites[i]);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void removeFromIndexes(GameInvite invite) {
+        if (removeFromIndex(bySender, invite.getInvitingPlayer(), invite)) {
+            held.decrementAndGet();
+        }
+        removeFromIndex(byRecipient, invite.getInvitedPlayer(), invite);
+    }
+
+    private static void addToIndex(LongObjectMap<InviteList> index, long userId, GameInvite invite) {
+        while (true) {
+            InviteList list = index.computeIfAbsent(userId, id -> new InviteList());
+            synchronized (list) {
+                if (!list.retired) {
+                    list.add(invite);
+                    return;
+                }
+            }
+            index.remove(userId, list); // help drop the retired list, then start over with a fresh one
+        }
+    }
+
+    /**
+     * Removes an invite from a player's list, and the list from the index once it is empty.
+     *
+     * @return true if the invite was in the list
+     */
+    private static boolean removeFromIndex(LongObjectMap<InviteList> index, long userId, GameInvite invite) {
+        InviteList list = index.get(userId);
+        if (list == null) {
+            return false;
+        }
+        boolean removed;
+        boolean retire = false;
+        synchronized (list) {
+            removed = list.remove(invite);
+            if (list.size == 0 && !list.retired) {
+                // Retire the list so a concurrent add that already holds it starts over with a new one.
+                list.retired = retire = true;
+            }
+        }
+        if (retire) {
+            index.remove(userId, list); // outside the list's monitor, so the two locks are never nested
+        }
+        return removed;
+    }
+
+    /**
+     * One player's invites in one direction, in the order they were sent. Guarded by its own monitor.
+     */
+    private static final class InviteList {
+        private GameInvite[] invites = new GameInvite[2];
+        private int size;
+        private boolean retired;
+
+        private void add(GameInvite invite) {
+            if (size == invites.length) {
+                GameInvite[] grown = new GameInvite[size * 2];
+                System.arraycopy(invites, 0, grown, 0, size);
+                invites = grown;
+            }
+            invites[size++] = invite;
+        }
+
+        private boolean remove(GameInvite invite) {
+            for (int i = 0; i < size; i++) {
+                if (invites[i] == invite) {
+                    System.arraycopy(invites, i + 1, invites, i, size - i - 1);
+                    invites[--size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+import java.awt.*;
+
+/**
+ * A public announcement, such as an invite being sent or declined.
+ *
+ * @param title       the heading
+ * @param description the body, which may mention users
+ * @param footer      a hint shown below the body, or null
+ * @param color       the accent color
+ */
+public record Notice(String title, String description, String footer, Color color) {
+}
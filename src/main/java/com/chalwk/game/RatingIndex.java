@@ -0,0 +1,115 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+/**
+ * Orders players by rating without ever sorting them. Ratings are whole numbers in a fixed range, and each rating value
+ * is a bucket holding the players who have it. A Fenwick tree over the bucket sizes counts the players above any rating
+ * and finds the bucket holding the player at any rank, both in O(log buckets) however many players there are.
+ * <p>
+ * Players in the same bucket share a rank. Within a bucket they are kept in an array, and a player's position in it
+ * (its slot) is stored by the caller, so moving a player between buckets is O(1) plus the two tree updates.
+ * Not thread-safe; {@link Ratings} guards it.
+ */
+class RatingIndex {
+
+    private final int[] tree; // 1-based Fenwick tree over the bucket sizes
+    private final long[][] members;
+    private final int[] sizes;
+    private final int highestBit;
+    private int total;
+
+    /**
+     * @param buckets the number of rating values, from 0 to {@code buckets - 1}
+     */
+    RatingIndex(int buckets) {
+        this.tree = new int[buckets + 1];
+        this.members = new long[buckets][];
+        this.sizes = new int[buckets];
+        this.highestBit = Integer.highestOneBit(buckets);
+    }
+
+    /**
+     * Adds a player to the bucket of its rating.
+     *
+     * @return the player's slot in the bucket
+     */
+    int add(int rating, long player) {
+        long[] bucket = members[rating];
+        if (bucket == null) {
+            bucket = members[rating] = new long[4];
+        } else if (sizes[rating] == bucket.length) {
+            long[] grown = new long[bucket.length * 2];
+            System.arraycopy(bucket, 0, grown, 0, bucket.length);
+            bucket = members[rating] = grown;
+        }
+        update(rating, 1);
+        bucket[sizes[rating]] = player;
+        return sizes[rating]++;
+    }
+
+    /**
+     * Removes the player in the given slot. The last player of the bucket takes its place.
+     *
+     * @return the player moved into the slot, whose slot must be updated, or 0 if none was moved
+     */
+    long remove(int rating, int slot) {
+        update(rating, -1);
+        long[] bucket = members[rating];
+        int last = --sizes[rating];
+        long moved = bucket[last];
+        bucket[slot] = moved;
+        bucket[last] = 0;
+        return slot == last ? 0 : moved;
+    }
+
+    /**
+     * Counts the players rated strictly higher than the given rating.
+     */
+    int countAbove(int rating) {
+        int atOrBelow = 0;
+        for (int i = rating + 1; i > 0; i -= i & -i) {
+            atOrBelow += tree[i];
+        }
+        return total - atOrBelow;
+    }
+
+    /**
+     * Finds the rating of the player at a rank, counting from the top.
+     *
+     * @param rank the rank, from 1 to {@link #size()}
+     * @return the rating of the bucket holding that rank
+     */
+    int ratingAtRank(int rank) {
+        int remaining = total - rank + 1; // the same player counted from the bottom
+        int position = 0;
+        for (int step = highestBit; step > 0; step >>= 1) {
+            int next = position + step;
+            if (next < tree.length && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position; // the bucket index is one less than the tree index found
+    }
+
+    int bucketSize(int rating) {
+        return sizes[rating];
+    }
+
+    long member(int rating, int slot) {
+        return members[rating][slot];
+    }
+
+    int size() {
+        return total;
+    }
+
+    private void update(int rating, int delta) {
+        total += delta;
+        for (int i = rating + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+}
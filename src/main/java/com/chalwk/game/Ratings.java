@@ -0,0 +1,276 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.game;
+
+import com.chalwk.util.Logging.Logger;
+import com.chalwk.util.LongObjectMap;
+import com.chalwk.util.Scheduler;
+import com.chalwk.util.fileIO;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Elo ratings of the players, updated when a game between two people ends in a win or a draw. Games against the
+ * computer and games that run out of time are not rated.
+ * <p>
+ * Ratings are whole numbers and players are ranked through a {@link RatingIndex}, so a player's rank and any page of
+ * the leaderboard are found in O(log n) without sorting. Players with the same rating share a rank.
+ * <p>
+ * Rating updates are rare next to moves, so the table is guarded by a single lock. It is saved to a text file, one
+ * {@code userID:rating:wins:losses:draws} line per player, every few minutes when it has changed and on shutdown.
+ */
+public class Ratings {
+
+    public static final int INITIAL_RATING = 1200;
+
+    /**
+     * The most a rating can move in one game.
+     */
+    private static final int K_FACTOR = 32;
+
+    private static final int MAX_RATING = 4095;
+    private static final long SAVE_INTERVAL_MINUTES = 5;
+
+    private final LongObjectMap<PlayerRating> players = new LongObjectMap<>();
+    private final RatingIndex index = new RatingIndex(MAX_RATING + 1);
+    private long changes;
+    private long savedChanges;
+    private Path path;
+
+    /**
+     * The outcome of one player's rated games and their place among all rated players.
+     *
+     * @param player the user ID
+     * @param rank   the player's rank, 1 for the highest rating
+     * @param rating the player's rating
+     * @param wins   games won
+     * @param losses games lost
+     * @param draws  games drawn
+     */
+    public record Standing(long player, int rank, int rating, int wins, int losses, int draws) {
+    }
+
+    /**
+     * The ratings of both players after a rated game.
+     *
+     * @param invitingRating the new rating of the player who sent the invite
+     * @param invitedRating  the new rating of the invited player
+     * @param delta          the points the inviting player gained, and the invited player lost
+     */
+    public record Change(int invitingRating, int invitedRating, int delta) {
+    }
+
+    /**
+     * Loads the ratings saved in a file and saves them back to it from now on.
+     *
+     * @param path the ratings file
+     */
+    public synchronized void open(Path path) {
+        int loaded = load(path);
+        this.path = path;
+        Scheduler.scheduleAtFixedRate(this::save, SAVE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        Logger.info("Loaded {} player ratings", loaded);
+    }
+
+    private int load(Path path) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        int[] loaded = {0};
+        try (Stream<String> lines = Files.lines(path)) {
+            lines.map(String::trim).filter(line -> !line.isEmpty()).forEach(line -> {
+                try {
+                    String[] fields = line.split(":");
+                    PlayerRating rating = new PlayerRating();
+                    rating.rating = clamp(Integer.parseInt(fields[1]));
+                    rating.wins = Integer.parseInt(fields[2]);
+                    rating.losses = Integer.parseInt(fields[3]);
+                    rating.draws = Integer.parseInt(fields[4]);
+                    long player = Long.parseLong(fields[0]);
+                    if (!players.containsKey(player)) {
+                        rating.slot = index.add(rating.rating, player);
+                        players.put(player, rating);
+                        loaded[0]++;
+                    }
+                } catch (RuntimeException e) {
+                    Logger.warning("Ignoring invalid rating line: {}", line);
+                }
+            });
+        } catch (IOException e) {
+            Logger.warning("Failed to load ratings: {}", e.getMessage());
+        }
+        return loaded[0];
+    }
+
+    /**
+     * Writes the ratings to the file they were loaded from, if any changed since the last save. The table is copied
+     * under the lock and written outside it, so games can end while the file is being written.
+     */
+    public void save() {
+        long[] ids;
+        int[][] fields;
+        long version;
+        Path target;
+        synchronized (this) {
+            if (path == null || changes == savedChanges) {
+                return;
+            }
+            target = path;
+            version = changes;
+            ids = new long[players.size()];
+            fields = new int[ids.length][];
+            int[] count = {0};
+            players.forEachEntry((player, rating) -> {
+                ids[count[0]] = player;
+                fields[count[0]++] = new int[]{rating.rating, rating.wins, rating.losses, rating.draws};
+            });
+        }
+
+        StringBuilder out = new StringBuilder(ids.length * 32);
+        for (int i = 0; i < ids.length; i++) {
+            out.append(ids[i]).append(':').append(fields[i][0]).append(':').append(fields[i][1])
+                    .append(':').append(fields[i][2]).append(':').append(fields[i][3]).append('\n');
+        }
+        try {
+            fileIO.writeAtomically(target, target.resolveSibling(target.getFileName() + ".tmp"), out.toString());
+            synchronized (this) {
+                savedChanges = Math.max(savedChanges, version);
+            }
+        } catch (IOException e) {
+            Logger.warning("Failed to save ratings: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Rates a finished game between two people.
+     *
+     * @param invitingPlayer the user ID of the player who sent the invite
+     * @param invitedPlayer  the user ID of the invited player
+     * @param state          how the game ended; the inviting player is player 1
+     * @return both players' new ratings
+     */
+    public synchronized Change recordGame(long invitingPlayer, long invitedPlayer, BoardState state) {
+        PlayerRating inviting = getOrCreate(invitingPlayer);
+        PlayerRating invited = getOrCreate(invitedPlayer);
+
+        double score = switch (state) {
+            case PLAYER1_WINS -> 1;
+            case PLAYER2_WINS -> 0;
+            case DRAW -> 0.5;
+            case IN_PROGRESS -> throw new IllegalArgumentException("The game has not ended");
+        };
+        double expected = 1 / (1 + Math.pow(10, (invited.rating - inviting.rating) / 400.0));
+        int delta = (int) Math.round(K_FACTOR * (score - expected));
+
+        switch (state) {
+            case PLAYER1_WINS -> {
+                inviting.wins++;
+                invited.losses++;
+            }
+            case PLAYER2_WINS -> {
+                invited.wins++;
+                inviting.losses++;
+            }
+            default -> {
+                inviting.draws++;
+                invited.draws++;
+            }
+        }
+        setRating(invitingPlayer, inviting, inviting.rating + delta);
+        setRating(invitedPlayer, invited, invited.rating - delta);
+        changes++;
+        return new Change(inviting.rating, invited.rating, delta);
+    }
+
+    /**
+     * Gets a player's rating and rank.
+     *
+     * @param player the user ID
+     * @return the player's standing, or null if the player has not played a rated game
+     */
+    public synchronized Standing getStanding(long player) {
+        PlayerRating rating = players.get(player);
+        return rating == null ? null : standing(player, rating, index.countAbove(rating.rating) + 1);
+    }
+
+    /**
+     * Gets a page of the leaderboard, highest rating first.
+     *
+     * @param offset the number of players to skip
+     * @param count  the most players to return
+     * @return the players at ranks {@code offset + 1} onwards
+     */
+    public synchronized List<Standing> getTop(int offset, int count) {
+        List<Standing> page = new ArrayList<>(count);
+        int position = offset + 1; // the next place on the board to fill
+        while (page.size() < count && position <= index.size()) {
+            int rating = index.ratingAtRank(position);
+            int rank = index.countAbove(rating) + 1;
+            int bucketSize = index.bucketSize(rating);
+            for (int slot = position - rank; slot < bucketSize && page.size() < count; slot++, position++) {
+                long player = index.member(rating, slot);
+                page.add(standing(player, players.get(player), rank));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Gets the number of players who have played a rated game.
+     *
+     * @return the number of rated players
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    private PlayerRating getOrCreate(long player) {
+        PlayerRating rating = players.get(player);
+        if (rating == null) {
+            rating = new PlayerRating();
+            rating.rating = INITIAL_RATING;
+            rating.slot = index.add(INITIAL_RATING, player);
+            players.put(player, rating);
+        }
+        return rating;
+    }
+
+    private void setRating(long player, PlayerRating rating, int newRating) {
+        newRating = clamp(newRating);
+        if (newRating == rating.rating) {
+            return;
+        }
+        long moved = index.remove(rating.rating, rating.slot);
+        if (moved != 0) {
+            players.get(moved).slot = rating.slot;
+        }
+        rating.rating = newRating;
+        rating.slot = index.add(newRating, player);
+    }
+
+    private static int clamp(int rating) {
+        return Math.max(0, Math.min(MAX_RATING, rating));
+    }
+
+    private static Standing standing(long player, PlayerRating rating, int rank) {
+        return new Standing(player, rank, rating.rating, rating.wins, rating.losses, rating.draws);
+    }
+
+    /**
+     * One player's rating, record, and position in its rating bucket. Guarded by the {@link Ratings} lock.
+     */
+    private static final class PlayerRating {
+        private int rating;
+        private int wins;
+        private int losses;
+        private int draws;
+        private int slot;
+    }
+}
@@ -0,0 +1,79 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed buckets, recorded without locking.
+ * <p>
+ * Every bucket is its own {@link LongAdder}, so threads recording at the same time update separate cells instead of
+ * contending on one counter. Buckets hold non-cumulative counts; they are only summed when the histogram is exported.
+ */
+public class Histogram {
+
+    /**
+     * Upper bounds of the buckets in seconds, from 100 microseconds to 10 seconds. Values above the last bound fall
+     * into an implicit +Inf bucket.
+     */
+    static final double[] BOUNDS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+            BOUNDS_NANOS[i] = Math.round(BOUNDS_SECONDS[i] * 1e9);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+    private final LongAdder sumNanos = new LongAdder();
+
+    public Histogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one observation.
+     *
+     * @param nanos the observed duration in nanoseconds
+     */
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * Gets the cumulative count for each bucket, the last entry being the +Inf bucket and so the total count.
+     * Concurrent updates may land in some buckets and not others, which Prometheus tolerates between scrapes.
+     *
+     * @return the cumulative bucket counts
+     */
+    long[] cumulativeCounts() {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            total += buckets[i].sum();
+            counts[i] = total;
+        }
+        return counts;
+    }
+
+    /**
+     * Gets the sum of all observations.
+     *
+     * @return the sum in seconds
+     */
+    double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+}
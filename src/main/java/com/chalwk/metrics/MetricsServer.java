@@ -0,0 +1,105 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.metrics;
+
+import com.chalwk.util.Logging.Logger;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Serves metrics to Prometheus at {@code /metrics} on the loopback interface, so they are only reachable from the
+ * host (or through a reverse proxy or an SSH tunnel).
+ * <p>
+ * Nothing is computed until a scrape arrives: each registered collector then reads the counters it owns and writes
+ * them out. Recording a metric therefore never touches the server.
+ */
+public class MetricsServer {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final List<Consumer<MetricsWriter>> collectors = new CopyOnWriteArrayList<>();
+    private final int port;
+    private HttpServer server;
+
+    /**
+     * @param port the port to listen on
+     */
+    public MetricsServer(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Adds a collector that writes its metrics on every scrape.
+     *
+     * @param collector writes metric families to the given writer
+     */
+    public void register(Consumer<MetricsWriter> collector) {
+        collectors.add(collector);
+    }
+
+    /**
+     * Starts listening. Scrapes are handled one at a time on a single daemon thread.
+     *
+     * @throws IOException if the port cannot be bound
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        Logger.info("Serving metrics on http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/metrics");
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Renders every collector's metrics. A collector that fails is logged and skipped so the others are still served.
+     *
+     * @return the metrics in the Prometheus text format
+     */
+    public String scrape() {
+        MetricsWriter writer = new MetricsWriter();
+        for (Consumer<MetricsWriter> collector : collectors) {
+            try {
+                collector.accept(writer);
+            } catch (RuntimeException e) {
+                Logger.warning("Metrics collector failed: " + e);
+            }
+        }
+        return writer.toString();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
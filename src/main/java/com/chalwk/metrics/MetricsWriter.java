@@ -0,0 +1,140 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.metrics;
+
+import java.math.BigDecimal;
+
+/**
+ * Writes metrics in the Prometheus text exposition format (version 0.0.4).
+ * <p>
+ * Each metric family is opened with {@link #family}, which writes its HELP and TYPE lines, and is followed by its
+ * samples. Labels are given as alternating names and values.
+ */
+public class MetricsWriter {
+
+    private static final String[] BUCKET_LABELS = new String[Histogram.BOUNDS_SECONDS.length + 1];
+
+    static {
+        for (int i = 0; i < Histogram.BOUNDS_SECONDS.length; i++) {
+            BUCKET_LABELS[i] = BigDecimal.valueOf(Histogram.BOUNDS_SECONDS[i]).stripTrailingZeros().toPlainString();
+        }
+        BUCKET_LABELS[Histogram.BOUNDS_SECONDS.length] = "+Inf";
+    }
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    /**
+     * Starts a metric family.
+     *
+     * @param name the metric name
+     * @param type counter, gauge or histogram
+     * @param help a one-line description
+     * @return this writer
+     */
+    public MetricsWriter family(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    /**
+     * Writes one sample of the current family.
+     *
+     * @param name   the metric name
+     * @param value  the value
+     * @param labels label names and values, alternating
+     * @return this writer
+     */
+    public MetricsWriter sample(String name, double value, String... labels) {
+        out.append(name);
+        appendLabels(labels, null, null);
+        out.append(' ');
+        appendValue(value);
+        out.append('\n');
+        return this;
+    }
+
+    /**
+     * Writes a whole counter family with a single unlabelled sample.
+     */
+    public MetricsWriter counter(String name, String help, double value) {
+        return family(name, "counter", help).sample(name, value);
+    }
+
+    /**
+     * Writes a whole gauge family with a single unlabelled sample.
+     */
+    public MetricsWriter gauge(String name, String help, double value) {
+        return family(name, "gauge", help).sample(name, value);
+    }
+
+    /**
+     * Writes the bucket, sum and count samples of a histogram in the current family.
+     *
+     * @param name      the metric name, without the _bucket, _sum or _count suffix
+     * @param histogram the histogram
+     * @param labels    label names and values, alternating
+     * @return this writer
+     */
+    public MetricsWriter histogram(String name, Histogram histogram, String... labels) {
+        long[] counts = histogram.cumulativeCounts();
+        for (int i = 0; i < counts.length; i++) {
+            out.append(name).append("_bucket");
+            appendLabels(labels, "le", BUCKET_LABELS[i]);
+            out.append(' ').append(counts[i]).append('\n');
+        }
+        out.append(name).append("_sum");
+        appendLabels(labels, null, null);
+        out.append(' ');
+        appendValue(histogram.sumSeconds());
+        out.append('\n');
+        out.append(name).append("_count");
+        appendLabels(labels, null, null);
+        out.append(' ').append(counts[counts.length - 1]).append('\n');
+        return this;
+    }
+
+    private void appendLabels(String[] labels, String extraName, String extraValue) {
+        if (labels.length == 0 && extraName == null) {
+            return;
+        }
+        out.append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) out.append(',');
+            appendLabel(labels[i], labels[i + 1]);
+        }
+        if (extraName != null) {
+            if (labels.length > 0) out.append(',');
+            appendLabel(extraName, extraValue);
+        }
+        out.append('}');
+    }
+
+    private void appendLabel(String name, String value) {
+        out.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '"' -> out.append("\\\"");
+                case '\n' -> out.append("\\n");
+                default -> out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private void appendValue(double value) {
+        if (value == (long) value) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+}
@@ -0,0 +1,106 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded ring of log records with many producers and one consumer, without locks.
+ * <p>
+ * Each slot carries a sequence number saying whose turn it is: a producer claims the next position with one
+ * compare-and-set, fills the preallocated record in that slot and publishes it by advancing the slot's sequence; the
+ * consumer reads published slots in order and hands them back the same way. Records are reused, so logging does not
+ * allocate beyond the message itself. When the ring is full, records are refused rather than making the caller wait.
+ */
+final class LogRing {
+
+    private final LogRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // only used by the consumer
+
+    /**
+     * @param capacity the number of records the ring holds; a power of two
+     */
+    LogRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        records = new LogRecord[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            records[i] = new LogRecord();
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds a record.
+     *
+     * @return false if the ring is full and the record was dropped
+     */
+    boolean offer(LogLevel level, long time, String thread, String message, Object[] args) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long available = sequences.get(index) - position;
+            if (available == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (available < 0) {
+                return false; // the consumer has not freed this slot yet
+            }
+            // otherwise another producer claimed the position first; try the next one
+        }
+
+        LogRecord record = records[index];
+        record.level = level;
+        record.time = time;
+        record.thread = thread;
+        record.message = message;
+        record.args = args;
+        sequences.set(index, position + 1); // a full fence, so the Logger's wake-up check that follows sees the writer
+        return true;
+    }
+
+    /**
+     * Gets the oldest published record without removing it. Consumer only.
+     *
+     * @return the record, or null if the ring is empty
+     */
+    LogRecord peek() {
+        int index = (int) (head & mask);
+        return sequences.get(index) == head + 1 ? records[index] : null;
+    }
+
+    /**
+     * Hands the record returned by {@link #peek} back to the producers. Consumer only.
+     */
+    void release() {
+        int index = (int) (head & mask);
+        records[index].clear();
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+    }
+
+    /**
+     * A log line waiting to be written. Slots are reused, so the fields are only valid until {@link #release}.
+     */
+    static final class LogRecord {
+        LogLevel level;
+        long time;
+        String thread;
+        String message;
+        Object[] args;
+
+        private void clear() {
+            thread = null;
+            message = null;
+            args = null;
+        }
+    }
+}
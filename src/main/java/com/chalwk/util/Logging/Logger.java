@@ -2,20 +2,112 @@
    See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
 package com.chalwk.util.Logging;
 
+import java.io.IOException;
 import java.io.PrintStream;
-import java.util.Date;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
+/**
+ * Asynchronous logger. Callers check the level against a single volatile field, then hand the record to a background
+ * writer through a lock-free ring ({@link LogRing}), so logging never blocks on the output stream. The writer formats
+ * the lines, batches them and flushes once the ring is empty, then parks until the next record; a producer that
+ * publishes while the writer is parked wakes it.
+ * <p>
+ * Messages can be given three ways: a finished string; a {@link Supplier}, only called if the level is enabled; or a
+ * pattern with {@code {}} placeholders, formatted on the writer thread. Arguments to a pattern are formatted later, so
+ * they should be immutable values. A {@link Throwable} passed after the last placeholder's argument is written with its
+ * stack trace below the message. If the ring is full the record is dropped and the writer reports how many were lost;
+ * only SEVERE records are never dropped, their caller writes out the backlog itself instead.
+ * <p>
+ * Configured with system properties: {@code log.level} (default INFO), and {@code log.file} to write to a file instead
+ * of standard error, rolled over at {@code log.file.size} bytes (default 10 MB) keeping {@code log.file.count} old
+ * files (default 5).
+ */
 public class Logger {
+
+    private static final int RING_CAPACITY = 8192;
+    private static final DateTimeFormatter SECOND_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private static final LogRing ring = new LogRing(RING_CAPACITY);
+    private static final LongAdder dropped = new LongAdder();
+    private static volatile int threshold = initialLevel().getValue();
+    private static volatile boolean running = true;
+    private static volatile boolean writerParked;
+
+    // Writer thread state
+    private static final StringBuilder line = new StringBuilder(256);
     private static final PrintStream stream = System.err;
-    private static LogLevel logLevel = LogLevel.WARNING;
+    private static RollingFile file;
+    private static long cachedSecond = Long.MIN_VALUE;
+    private static String cachedSecondText;
+
+    private static final Thread writer = startWriter();
+
+    private static LogLevel initialLevel() {
+        String level = System.getProperty("log.level", "INFO");
+        try {
+            return LogLevel.valueOf(level.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown log.level " + level + ", using INFO");
+            return LogLevel.INFO;
+        }
+    }
+
+    private static Thread startWriter() {
+        Thread thread = new Thread(Logger::drainLoop, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(Logger::shutdown, "log-writer-shutdown"));
+        return thread;
+    }
 
     public static void setLogLevel(LogLevel level) {
-        logLevel = level;
+        threshold = level.getValue();
+    }
+
+    /**
+     * Checks if messages of a level are written. SEVERE is the most important level and ALL the least.
+     *
+     * @param level the level to check
+     * @return true if the level is enabled
+     */
+    public static boolean isLoggable(LogLevel level) {
+        return level.getValue() <= threshold;
     }
 
     public static void log(LogLevel level, String message) {
-        if (level.getValue() >= logLevel.getValue()) {
-            log(level.name() + " - " + message);
+        if (isLoggable(level)) {
+            enqueue(level, message, null);
+        }
+    }
+
+    public static void log(LogLevel level, Supplier<String> message) {
+        if (isLoggable(level)) {
+            enqueue(level, message.get(), null);
+        }
+    }
+
+    /**
+     * Logs a message whose {@code {}} placeholders are replaced by the arguments, in order, on the writer thread. If one
+     * argument is left over and it is a {@link Throwable}, its stack trace is written after the message.
+     *
+     * @param level   the level of the message
+     * @param pattern the message with placeholders
+     * @param args    the values for the placeholders
+     */
+    public static void log(LogLevel level, String pattern, Object... args) {
+        if (isLoggable(level)) {
+            enqueue(level, pattern, args);
         }
     }
 
@@ -23,31 +115,265 @@ public class Logger {
         log(LogLevel.SEVERE, message);
     }
 
+    public static void severe(Supplier<String> message) {
+        log(LogLevel.SEVERE, message);
+    }
+
+    public static void severe(String pattern, Object... args) {
+        log(LogLevel.SEVERE, pattern, args);
+    }
+
     public static void warning(String message) {
         log(LogLevel.WARNING, message);
     }
 
+    public static void warning(Supplier<String> message) {
+        log(LogLevel.WARNING, message);
+    }
+
+    public static void warning(String pattern, Object... args) {
+        log(LogLevel.WARNING, pattern, args);
+    }
+
     public static void info(String message) {
         log(LogLevel.INFO, message);
     }
 
+    public static void info(Supplier<String> message) {
+        log(LogLevel.INFO, message);
+    }
+
+    public static void info(String pattern, Object... args) {
+        log(LogLevel.INFO, pattern, args);
+    }
+
     public static void config(String message) {
         log(LogLevel.CONFIG, message);
     }
 
+    public static void config(Supplier<String> message) {
+        log(LogLevel.CONFIG, message);
+    }
+
+    public static void config(String pattern, Object... args) {
+        log(LogLevel.CONFIG, pattern, args);
+    }
+
     public static void fine(String message) {
         log(LogLevel.FINE, message);
     }
 
+    public static void fine(Supplier<String> message) {
+        log(LogLevel.FINE, message);
+    }
+
+    public static void fine(String pattern, Object... args) {
+        log(LogLevel.FINE, pattern, args);
+    }
+
     public static void finer(String message) {
         log(LogLevel.FINER, message);
     }
 
+    public static void finer(Supplier<String> message) {
+        log(LogLevel.FINER, message);
+    }
+
+    public static void finer(String pattern, Object... args) {
+        log(LogLevel.FINER, pattern, args);
+    }
+
     public static void finest(String message) {
         log(LogLevel.FINEST, message);
     }
 
-    private static void log(String message) {
-        stream.println(new Date() + " - " + message);
+    public static void finest(Supplier<String> message) {
+        log(LogLevel.FINEST, message);
+    }
+
+    public static void finest(String pattern, Object... args) {
+        log(LogLevel.FINEST, pattern, args);
+    }
+
+    private static void enqueue(LogLevel level, String message, Object[] args) {
+        long time = System.currentTimeMillis();
+        String thread = Thread.currentThread().getName();
+        while (!ring.offer(level, time, thread, message, args)) {
+            if (level != LogLevel.SEVERE) {
+                dropped.increment();
+                return;
+            }
+            drain(); // errors are never dropped: make room by writing the backlog from this thread
+        }
+        // The record is published with a volatile write before this read, and the writer sets the flag before it
+        // looks at the ring again, so one of the two always sees the other and a record is never left unwritten.
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+        if (!running) {
+            drain(); // the writer has stopped; write it out from here so late records are not lost
+        }
+    }
+
+    private static void drainLoop() {
+        openFile();
+        while (running) {
+            if (!drain()) {
+                writerParked = true;
+                if (running && isEmpty()) {
+                    LockSupport.park();
+                }
+                writerParked = false;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Writes every record in the ring and flushes.
+     *
+     * @return true if anything was written
+     */
+    private static synchronized boolean drain() {
+        boolean wrote = false;
+        LogRing.LogRecord record;
+        while ((record = ring.peek()) != null) {
+            format(record.level, record.time, record.thread, record.message, record.args);
+            ring.release();
+            write();
+            wrote = true;
+        }
+
+        long lost = dropped.sumThenReset();
+        if (lost > 0) {
+            format(LogLevel.WARNING, System.currentTimeMillis(), "log-writer", "{} log records were dropped because the log buffer was full", new Object[]{lost});
+            write();
+            wrote = true;
+        }
+
+        if (wrote) {
+            flush();
+        }
+        return wrote;
+    }
+
+    private static synchronized boolean isEmpty() {
+        return ring.peek() == null;
+    }
+
+    private static void format(LogLevel level, long time, String thread, String message, Object[] args) {
+        line.setLength(0);
+        appendTimestamp(time);
+        line.append(" - ").append(level.name()).append(" - [").append(thread).append("] ");
+        if (args == null) {
+            line.append(message);
+        } else {
+            appendPattern(message, args);
+        }
+        line.append(System.lineSeparator());
+    }
+
+    /**
+     * Formats the timestamp, reusing the date and time text while the second is unchanged.
+     */
+    private static void appendTimestamp(long time) {
+        long second = Math.floorDiv(time, 1000);
+        if (second != cachedSecond) {
+            cachedSecond = second;
+            cachedSecondText = SECOND_FORMAT.format(Instant.ofEpochSecond(second));
+        }
+        int millis = Math.floorMod(time, 1000);
+        line.append(cachedSecondText).append('.');
+        if (millis < 100) line.append('0');
+        if (millis < 10) line.append('0');
+        line.append(millis);
+    }
+
+    private static void appendPattern(String pattern, Object[] args) {
+        int start = 0;
+        int arg = 0;
+        int placeholder;
+        while (arg < args.length && (placeholder = pattern.indexOf("{}", start)) >= 0) {
+            line.append(pattern, start, placeholder).append(args[arg++]);
+            start = placeholder + 2;
+        }
+        line.append(pattern, start, pattern.length());
+        if (arg == args.length - 1 && args[arg] instanceof Throwable error) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            line.append(System.lineSeparator()).append(trace.getBuffer());
+            line.setLength(line.length() - System.lineSeparator().length()); // format ends the line itself
+        }
+    }
+
+    private static void write() {
+        if (file != null) {
+            try {
+                file.write(line.toString().getBytes(StandardCharsets.UTF_8));
+                return;
+            } catch (IOException e) {
+                closeFile("Failed to write log file, logging to standard error: " + e);
+            }
+        }
+        stream.append(line);
+    }
+
+    private static void flush() {
+        if (file != null) {
+            try {
+                file.flush();
+            } catch (IOException e) {
+                closeFile("Failed to write log file, logging to standard error: " + e);
+            }
+        }
+        stream.flush();
+    }
+
+    private static void openFile() {
+        String path = System.getProperty("log.file");
+        if (path == null) {
+            return;
+        }
+        try {
+            long maxBytes = Long.getLong("log.file.size", 10L * 1024 * 1024);
+            int maxFiles = Integer.getInteger("log.file.count", 5);
+            file = new RollingFile(Paths.get(path), maxBytes, maxFiles);
+        } catch (IOException e) {
+            stream.println("Failed to open log file " + path + ", logging to standard error: " + e);
+        }
+    }
+
+    private static void closeFile(String reason) {
+        try {
+            file.close();
+        } catch (IOException ignored) {
+            // already failing; standard error takes over either way
+        }
+        file = null;
+        stream.println(reason);
+    }
+
+    /**
+     * Stops the writer after it has written everything logged so far.
+     */
+    private static void shutdown() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(2));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (Logger.class) {
+            drain();
+            if (file != null) {
+                try {
+                    file.close();
+                } catch (IOException ignored) {
+                    // nothing left to report it to
+                }
+                file = null; // anything logged by later shutdown hooks goes to standard error
+            }
+        }
     }
 }
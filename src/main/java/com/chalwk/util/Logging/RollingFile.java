@@ -0,0 +1,84 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+package com.chalwk.util.Logging;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A log file that is rolled over once it reaches a size limit: {@code bot.log} becomes {@code bot.log.1}, the previous
+ * {@code bot.log.1} becomes {@code bot.log.2}, and so on, and the oldest file is deleted.
+ * Only used by the log writer thread.
+ */
+final class RollingFile implements AutoCloseable {
+
+    private final Path path;
+    private final long maxBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long size;
+
+    /**
+     * @param path     the file to write to
+     * @param maxBytes the size at which the file is rolled over
+     * @param maxFiles how many rolled-over files to keep
+     * @throws IOException if the file cannot be opened
+     */
+    RollingFile(Path path, long maxBytes, int maxFiles) throws IOException {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        open();
+    }
+
+    private void open() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = new BufferedOutputStream(Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        size = Files.size(path);
+    }
+
+    void write(byte[] line) throws IOException {
+        if (size > 0 && size + line.length > maxBytes) {
+            roll();
+        }
+        out.write(line);
+        size += line.length;
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = rolled(i);
+            if (Files.exists(older)) {
+                Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        if (maxFiles > 0) {
+            Files.move(path, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(path);
+        }
+        open();
+    }
+
+    private Path rolled(int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
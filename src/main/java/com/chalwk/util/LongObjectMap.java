@@ -0,0 +1,274 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongFunction;
+
+/**
+ * A thread-safe map from primitive {@code long} keys (Discord snowflakes) to objects.
+ * Keys are spread over lock stripes, each an open-addressing table with linear probing, so lookups never box the key
+ * and operations on different stripes never contend. The key {@code 0} is reserved as the empty marker and cannot
+ * be stored; Discord never issues it as an ID.
+ *
+ * @param <V> the type of the mapped values
+ */
+public class LongObjectMap<V> {
+
+    private static final int STRIPES = 32;
+    private static final int STRIPE_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(STRIPES);
+
+    private final Segment[] segments = new Segment[STRIPES];
+
+    public LongObjectMap() {
+        for (int i = 0; i < STRIPES; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Scrambles a key so sequential snowflakes spread evenly over stripes and slots.
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    private static void checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+    }
+
+    private Segment segmentFor(long hash) {
+        return segments[(int) (hash >>> STRIPE_SHIFT)];
+    }
+
+    public V get(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps a key to a value, replacing any previous mapping.
+     *
+     * @return the previous value, or null if there was none
+     */
+    public V put(long key, V value) {
+        checkKey(key);
+        long hash = mix(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * Maps a key to a value only if the key is not already mapped.
+     *
+     * @return the existing value, or null if the value was stored
+     */
+    public V putIfAbsent(long key, V value) {
+        checkKey(key);
+        long hash = mix(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * Returns the value for a key, creating and storing it atomically if the key is not mapped.
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        checkKey(key);
+        long hash = mix(key);
+        return segmentFor(hash).computeIfAbsent(key, hash, factory);
+    }
+
+    /**
+     * Removes the mapping for a key.
+     *
+     * @return the removed value, or null if the key was not mapped
+     */
+    public V remove(long key) {
+        long hash = mix(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Removes the mapping for a key only if it currently maps to the given value.
+     *
+     * @return true if the mapping was removed
+     */
+    public boolean remove(long key, V value) {
+        long hash = mix(key);
+        return segmentFor(hash).remove(key, hash, value) != null;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Calls the action for every mapping, one stripe at a time. The action runs while that stripe is locked, so it must
+     * not modify this map.
+     */
+    public void forEachEntry(LongObjectConsumer<? super V> action) {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (int i = 0; i < segment.keys.length; i++) {
+                    if (segment.keys[i] != 0) {
+                        action.accept(segment.keys[i], segment.<V>valueAt(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the values. Each stripe is copied atomically, the map as a whole is not.
+     */
+    public List<V> values() {
+        List<V> values = new ArrayList<>();
+        forEachEntry((key, value) -> values.add(value));
+        return values;
+    }
+
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * One lock stripe: a power-of-two open-addressing table kept at most half full.
+     */
+    private static final class Segment {
+
+        private long[] keys = new long[16];
+        private Object[] values = new Object[16];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        private <V> V valueAt(int slot) {
+            return (V) values[slot];
+        }
+
+        private int slotOf(long key, long hash) {
+            int mask = keys.length - 1;
+            int slot = (int) hash & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return ~slot; // not found; encodes the free slot to insert into
+        }
+
+        synchronized <V> V get(long key, long hash) {
+            int slot = slotOf(key, hash);
+            return slot >= 0 ? valueAt(slot) : null;
+        }
+
+        synchronized <V> V put(long key, long hash, V value, boolean onlyIfAbsent) {
+            int slot = slotOf(key, hash);
+            if (slot >= 0) {
+                V previous = valueAt(slot);
+                if (!onlyIfAbsent) {
+                    values[slot] = value;
+                }
+                return previous;
+            }
+            insert(~slot, key, hash, value);
+            return null;
+        }
+
+        synchronized <V> V computeIfAbsent(long key, long hash, LongFunction<? extends V> factory) {
+            int slot = slotOf(key, hash);
+            if (slot >= 0) {
+                return valueAt(slot);
+            }
+            V value = factory.apply(key);
+            if (value != null) {
+                insert(~slot, key, hash, value);
+            }
+            return value;
+        }
+
+        synchronized <V> V remove(long key, long hash, Object expected) {
+            int slot = slotOf(key, hash);
+            if (slot < 0 || (expected != null && values[slot] != expected)) {
+                return null;
+            }
+            V previous = valueAt(slot);
+            deleteSlot(slot);
+            return previous;
+        }
+
+        private void insert(int slot, long key, long hash, Object value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                slot = ~slotOf(key, hash);
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+        }
+
+        /**
+         * Removes a slot by shifting later entries of the same probe run back, so no tombstones are needed.
+         */
+        private void deleteSlot(int slot) {
+            int mask = keys.length - 1;
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (keys[next] != 0) {
+                int home = (int) mix(keys[next]) & mask;
+                // Move the entry into the hole unless its home slot lies cyclically in (hole, next].
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+            size--;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Object[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                long key = oldKeys[i];
+                if (key != 0) {
+                    int slot = (int) mix(key) & mask;
+                    while (keys[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = key;
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
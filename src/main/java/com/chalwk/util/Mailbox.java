@@ -0,0 +1,91 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the tasks submitted to it one at a time, in submission order, on a shared worker pool.
+ * <p>
+ * Each mailbox is a lock-free queue plus a flag saying whether a worker is draining it, so an owner (such as a game)
+ * never needs a lock: everything that touches its state goes through its mailbox. A mailbox occupies at most one
+ * worker at a time, while different mailboxes drain in parallel.
+ */
+public class Mailbox {
+
+    private static final int WORKERS = Math.max(8, Runtime.getRuntime().availableProcessors() * 4);
+    private static final ExecutorService EXECUTOR = createExecutor();
+
+    /**
+     * The most tasks one drain runs before giving its worker back, so a busy mailbox cannot starve the others.
+     */
+    private static final int BATCH = 32;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final String name;
+
+    /**
+     * @param name identifies the owner in error logs
+     */
+    public Mailbox(String name) {
+        this.name = name;
+    }
+
+    private static ExecutorService createExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mailbox-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Queues a task to run after every task submitted before it.
+     *
+     * @param task the task to run
+     */
+    public void submit(Runnable task) {
+        tasks.offer(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            EXECUTOR.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    Logger.severe("Task for {} failed", name, e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // A task offered after the last poll but before the flag was cleared would otherwise be stranded.
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
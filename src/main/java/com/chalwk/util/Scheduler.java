@@ -0,0 +1,73 @@
+/* Copyright (c) 2024 Jericho Crosby <jericho.crosby227@gmail.com>. Licensed under GNU General Public License v3.0.
+   See the LICENSE file or visit https://www.gnu.org/licenses/gpl-3.0.en.html for details. */
+
+package com.chalwk.util;
+
+import com.chalwk.util.Logging.Logger;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single process-wide timer thread for game deadlines and other delayed work.
+ * Tasks are held in one delay queue, so the thread count stays the same however many games are running.
+ * Tasks must be short; anything slow should be handed off to another executor.
+ */
+public class Scheduler {
+
+    private static final ScheduledThreadPoolExecutor EXECUTOR = createExecutor();
+
+    private Scheduler() {
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "game-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Remove cancelled tasks straight away (O(log n) in the heap), so a finished game's timeout does not keep the
+        // game reachable until its deadline.
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    /**
+     * Runs a task once after the given delay.
+     *
+     * @param task  the task to run
+     * @param delay the delay before the task runs
+     * @param unit  the unit of the delay
+     * @return a future that can be used to cancel the task
+     */
+    public static ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return EXECUTOR.schedule(guard(task), delay, unit);
+    }
+
+    /**
+     * Runs a task repeatedly with a fixed period between runs.
+     *
+     * @param task   the task to run
+     * @param period the period between runs
+     * @param unit   the unit of the period
+     * @return a future that can be used to cancel the task
+     */
+    public static ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period, TimeUnit unit) {
+        return EXECUTOR.scheduleAtFixedRate(guard(task), period, period, unit);
+    }
+
+    /**
+     * Wraps a task so an exception is logged instead of silently cancelling a periodic task.
+     */
+    private static Runnable guard(Runnable task) {
+        return () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Logger.warning("Scheduled task failed: " + e.getMessage());
+            }
+        };
+    }
+}
@@ -3,98 +3,287 @@
 
 package com.chalwk.util;
 
-import com.chalwk.game.GameManager;
+import com.chalwk.game.ChannelRegistry;
 import com.chalwk.util.Logging.Logger;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
 import java.io.IOException;
-import java.net.URI;
-import java.net.URISyntaxException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.file.*;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Stream;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Reads and writes the game channel configuration. The file lives in the working directory next to
+ * {@code auth.token}; it is read once at startup, rewritten atomically on change and reloaded when edited externally,
+ * so commands are always served from the in-memory {@link ChannelRegistry}.
+ * <p>
+ * Changes to the registry, saves and reloads all happen under one lock, so a reload can never undo a change that is
+ * being saved. The text last read or written is remembered, and a file event whose content matches it (the bot's own
+ * write, or a repeated event for the same edit) is ignored.
+ * <p>
+ * Also keeps the hash of the slash command definitions last registered with Discord, so an unchanged set of commands
+ * is not registered again on every start.
+ */
 public class fileIO {
 
-    private static final String CONFIG_FILE = "/config.txt";
+    private static final Path CONFIG_FILE = Paths.get("config.txt");
+    private static final Path TEMP_FILE = Paths.get("config.txt.tmp");
+    private static final Path COMMAND_HASH_FILE = Paths.get("commands.hash");
+    private static final Path COMMAND_HASH_TEMP_FILE = Paths.get("commands.hash.tmp");
+
+    private static final Object CONFIG_LOCK = new Object();
+    private static String configContent; // guarded by CONFIG_LOCK
 
     /**
-     * Loads the channel ID from the configuration file.
+     * Loads the configured game channels into the registry. Each line holds {@code guildID:channelID}.
+     * Lines written by older versions hold only a channel ID; those are returned so they can be assigned to their
+     * guild once the shards are connected.
      *
-     * @return The channel ID or an empty string if not found.
+     * @param registry the registry to fill
+     * @return the channel IDs that have no guild yet
      */
-    public static String loadChannelID() {
-        try (Stream<String> lines = Files.lines(Paths.get(fileIO.class.getResource(CONFIG_FILE).toURI()))) {
-            return lines.filter(line -> !line.trim().isEmpty())
-                    .findFirst()
-                    .map(String::trim)
-                    .orElse("");
-        } catch (IOException | URISyntaxException e) {
-            Logger.info("Failed to load Channel ID: " + e.getMessage());
-            return ""; // return an empty string for better handling in callers
+    public static List<Long> loadChannels(ChannelRegistry registry) {
+        synchronized (CONFIG_LOCK) {
+            String content = readConfig();
+            if (content == null) {
+                return new ArrayList<>();
+            }
+            configContent = content;
+            return parseChannels(content, registry);
         }
     }
 
     /**
-     * Saves the given channel ID to the configuration file.
+     * Reads the configuration file.
      *
-     * @param channelID      The channel ID to save.
-     * @param isAddOperation True if adding the channel ID, false if removing it.
-     * @param event          The interaction event to respond to the user.
-     * @param gameManager    The game manager instance.
+     * @return its text, or null if there is no file or it cannot be read
      */
-    public static void saveChannelID(String channelID, boolean isAddOperation, SlashCommandInteractionEvent event, GameManager gameManager) {
+    private static String readConfig() {
+        if (!Files.exists(CONFIG_FILE)) {
+            return null;
+        }
         try {
-            URI fileUri = fileIO.class.getResource(CONFIG_FILE).toURI();
-            Path filePath = Paths.get(fileUri);
+            return Files.readString(CONFIG_FILE);
+        } catch (IOException e) {
+            Logger.info("Failed to load channel IDs: " + e.getMessage());
+            return null;
+        }
+    }
 
-            // Ensure the file exists
-            if (!Files.exists(filePath)) {
-                Files.createFile(filePath);
+    private static List<Long> parseChannels(String content, ChannelRegistry registry) {
+        List<Long> legacyChannels = new ArrayList<>();
+        content.lines().map(String::trim).filter(line -> !line.isEmpty()).forEach(line -> {
+            try {
+                int separator = line.indexOf(':');
+                if (separator < 0) {
+                    legacyChannels.add(Long.parseLong(line));
+                } else {
+                    long guildID = Long.parseLong(line.substring(0, separator).trim());
+                    long channelID = Long.parseLong(line.substring(separator + 1).trim());
+                    registry.setChannel(guildID, channelID);
+                }
+            } catch (NumberFormatException e) {
+                Logger.warning("Ignoring invalid config line: " + line);
             }
+        });
+        return legacyChannels;
+    }
 
-            List<String> lines = Files.readAllLines(filePath);
-
+    /**
+     * Saves or removes the game channel of a guild and writes the configuration file.
+     *
+     * @param guildID        The guild the channel belongs to.
+     * @param channelID      The channel ID to save.
+     * @param isAddOperation True if adding the channel ID, false if removing it.
+     * @param event          The interaction event to respond to the user.
+     * @param registry       The channel registry.
+     */
+    public static void saveChannelID(long guildID, long channelID, boolean isAddOperation, SlashCommandInteractionEvent event, ChannelRegistry registry) {
+        boolean saved = updateChannels(registry, () -> {
             if (isAddOperation) {
-                lines.add(channelID);
-                event.reply("## Channel ID saved!").setEphemeral(true).queue();
-                gameManager.setChannelID(channelID);
+                registry.setChannel(guildID, channelID);
             } else {
-                lines.removeIf(line -> line.trim().equals(channelID));
-                event.reply("## Channel ID removed!").setEphemeral(true).queue();
-                gameManager.setChannelID("");
+                registry.removeChannel(guildID);
             }
+            return true;
+        });
 
-            Files.writeString(filePath, String.join("\n", lines));
-        } catch (URISyntaxException e) {
-            Logger.info("Failed to parse file URI: " + e.getMessage());
-            event.reply("## Failed to read data from the config file!").setEphemeral(true).queue();
-        } catch (IOException e) {
-            Logger.info("Failed to read or write data: " + e.getMessage());
+        if (saved) {
+            event.reply(isAddOperation ? "## Channel ID saved!" : "## Channel ID removed!").setEphemeral(true).queue();
+        } else {
             event.reply("## Failed to save channel ID!").setEphemeral(true).queue();
         }
     }
 
     /**
-     * Checks if the given channel ID is configured in the file.
+     * Changes the registry and, if the change says so, writes the configuration file, without a reload of the file
+     * running in between.
+     *
+     * @param registry The channel registry.
+     * @param change   Changes the registry and returns true if the file needs writing.
+     * @return False if the file needed writing and could not be written, true otherwise.
+     */
+    public static boolean updateChannels(ChannelRegistry registry, BooleanSupplier change) {
+        synchronized (CONFIG_LOCK) {
+            return !change.getAsBoolean() || saveChannels(registry);
+        }
+    }
+
+    /**
+     * Writes every configured game channel to the configuration file. The data is written to a temporary file that
+     * then replaces the config in one rename, so a crash or a reader never sees a half-written file.
+     *
+     * @param registry The channel registry.
+     * @return True if the file was written, false otherwise.
+     */
+    private static boolean saveChannels(ChannelRegistry registry) {
+        synchronized (CONFIG_LOCK) {
+            List<String> lines = new ArrayList<>();
+            registry.forEach((guildID, channelID) -> lines.add(guildID + ":" + channelID));
+            String content = String.join("\n", lines);
+            try {
+                writeAtomically(CONFIG_FILE, TEMP_FILE, content);
+                configContent = content;
+                return true;
+            } catch (IOException e) {
+                Logger.info("Failed to write data: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+    /**
+     * Reads the hash of the slash command definitions that were last registered.
+     *
+     * @return the stored hash, or null if commands were never registered globally
+     */
+    public static String loadCommandHash() {
+        if (!Files.exists(COMMAND_HASH_FILE)) {
+            return null;
+        }
+        try {
+            String hash = Files.readString(COMMAND_HASH_FILE).trim();
+            return hash.isEmpty() ? null : hash;
+        } catch (IOException e) {
+            Logger.warning("Failed to read the command hash: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the hash of the slash command definitions that were just registered.
      *
+     * @param hash the hash to store
+     */
+    public static synchronized void saveCommandHash(String hash) {
+        try {
+            writeAtomically(COMMAND_HASH_FILE, COMMAND_HASH_TEMP_FILE, hash);
+        } catch (IOException e) {
+            Logger.warning("Failed to write the command hash: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the content to a temporary file that then replaces the target in one rename, so a crash or a reader never
+     * sees a half-written file.
+     *
+     * @param target  the file to write
+     * @param temp    the temporary file, in the same directory as the target
+     * @param content the text to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeAtomically(Path target, Path temp, String content) throws IOException {
+        Files.writeString(temp, content);
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Checks if the given channel is the configured game channel of the guild.
+     *
+     * @param guildID   The guild ID.
      * @param channelID The channel ID to check.
+     * @param registry  The channel registry.
      * @return True if the channel ID is configured, false otherwise.
      */
-    public static boolean isChannelIdConfigured(String channelID) {
-        if (channelID == null || channelID.isEmpty()) {
-            return false;
-        } else if (!GameManager.getChannelID().isEmpty()) {
-            return true;
+    public static boolean isChannelIdConfigured(long guildID, long channelID, ChannelRegistry registry) {
+        return registry.isConfigured(guildID, channelID);
+    }
+
+    /**
+     * Starts a daemon thread that reloads the registry whenever the configuration file changes on disk.
+     *
+     * @param registry The channel registry to keep up to date.
+     */
+    public static void watchConfig(ChannelRegistry registry) {
+        Path directory = CONFIG_FILE.toAbsolutePath().getParent();
+        WatchService watcher;
+        try {
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            Logger.warning("Unable to watch the config file: " + e.getMessage());
+            return;
         }
 
-        try (Stream<String> lines = Files.lines(Paths.get(fileIO.class.getResource(CONFIG_FILE).toURI()))) {
-            return lines.anyMatch(line -> line.trim().equals(channelID));
-        } catch (IOException | URISyntaxException e) {
-            Logger.info("Failed to read data: " + e.getMessage());
-            return false;
+        Thread thread = new Thread(() -> {
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watcher.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= CONFIG_FILE.getFileName().equals(event.context());
+                }
+                if (changed) {
+                    reloadChannels(registry);
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        }, "config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Re-reads the configuration file and applies the differences to the registry, unless the file holds what was
+     * last read or written. Unchanged guilds keep their cached channel handle.
+     */
+    private static void reloadChannels(ChannelRegistry registry) {
+        synchronized (CONFIG_LOCK) {
+            String content = readConfig();
+            if (content == null || content.equals(configContent)) {
+                return; // our own write, or an event for an edit already applied
+            }
+            configContent = content;
+
+            ChannelRegistry loaded = new ChannelRegistry();
+            parseChannels(content, loaded);
+
+            loaded.forEach((guildID, channelID) -> {
+                if (registry.getChannelId(guildID) != channelID) {
+                    registry.setChannel(guildID, channelID);
+                }
+            });
+
+            List<Long> removed = new ArrayList<>();
+            registry.forEach((guildID, channelID) -> {
+                if (loaded.getChannelId(guildID) == 0) {
+                    removed.add(guildID);
+                }
+            });
+            removed.forEach(registry::removeChannel);
         }
+
+        Logger.info("Reloaded channel configuration");
     }
 }
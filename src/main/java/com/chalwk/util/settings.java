@@ -3,37 +3,83 @@
 
 package com.chalwk.util;
 
-import com.chalwk.game.GameManager;
-import net.dv8tion.jda.api.entities.channel.Channel;
+import com.chalwk.bot.GatewayProfile;
+import com.chalwk.util.Logging.Logger;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 
+import static com.chalwk.bot.BotInitializer.getGameManager;
+
 public class settings {
 
     public static final int DEFAULT_TIME_LIMIT = 300;
 
+    public static final int INVITE_TIME_LIMIT = 120;
+
+    /**
+     * Default port of the local metrics endpoint. Override with {@code -Dmetrics.port=<port>}; a negative port turns
+     * the endpoint off.
+     */
+    public static final int METRICS_PORT = 9464;
+
+    /**
+     * Default gateway profile. Override with {@code -Dgateway.profile=full} to connect with the member and presence
+     * caches.
+     */
+    public static final GatewayProfile GATEWAY_PROFILE = GatewayProfile.LEAN;
+
     public static int getDefaultTimeLimit() {
         return DEFAULT_TIME_LIMIT;
     }
 
+    /**
+     * Gets how long an invite stays open before it expires.
+     *
+     * @return the invite lifetime in seconds
+     */
+    public static int getInviteTimeLimit() {
+        return INVITE_TIME_LIMIT;
+    }
+
+    public static int getMetricsPort() {
+        return Integer.getInteger("metrics.port", METRICS_PORT);
+    }
+
+    /**
+     * Gets the gateway profile to connect with. An unknown name falls back to the default.
+     *
+     * @return the gateway profile
+     */
+    public static GatewayProfile getGatewayProfile() {
+        String name = System.getProperty("gateway.profile");
+        if (name == null) {
+            return GATEWAY_PROFILE;
+        }
+        try {
+            return GatewayProfile.fromName(name);
+        } catch (IllegalArgumentException e) {
+            Logger.warning("{}, using {}", e.getMessage(), GATEWAY_PROFILE);
+            return GATEWAY_PROFILE;
+        }
+    }
+
     public static boolean notCorrectChannel(SlashCommandInteractionEvent event) {
-        String thisChannel = event.getChannel().getId();
-        String requiredChannel = GameManager.getChannelID();
+        if (!event.isFromGuild()) {
+            event.reply("This game can only be played in a server.").setEphemeral(true).queue();
+            return true;
+        }
+
+        long thisChannel = event.getChannel().getIdLong();
+        long requiredChannel = getGameManager().getChannels().getChannelId(event.getGuild().getIdLong());
 
-        if (requiredChannel.isEmpty()) {
+        if (requiredChannel == 0) {
             event.reply("""
                     # Game is not set up.
                     Please set the channel for game to use first.
                     Ask an admin to use the `/setchannel` command.
                     """).setEphemeral(true).queue();
             return true;
-        } else if (!thisChannel.equals(requiredChannel)) {
-            Channel channel = event.getGuild().getTextChannelById(requiredChannel);
-
-            if (channel != null) {
-                event.reply("This game only works in " + channel).setEphemeral(true).queue();
-            } else {
-                event.reply("The required channel is not available").setEphemeral(true).queue();
-            }
+        } else if (thisChannel != requiredChannel) {
+            event.reply("This game only works in <#" + requiredChannel + ">").setEphemeral(true).queue();
             return true;
         }
         return false;